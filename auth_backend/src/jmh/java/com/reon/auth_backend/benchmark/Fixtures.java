@@ -0,0 +1,56 @@
+package com.reon.auth_backend.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.reon.auth_backend.jwt.JwtUtils;
+import com.reon.auth_backend.jwt.SigningKey;
+import com.reon.auth_backend.jwt.SigningKeyRing;
+import com.reon.auth_backend.model.User;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Shared inputs for the benchmarks, shaped like production data.
+ */
+final class Fixtures {
+    // Base64 of a 41 byte key, long enough for HS256
+    static final String JWT_SECRET = "c2VjcmV0LWtleS1mb3ItYmVuY2htYXJrcy1vbmx5LTAxMjM0NTY3ODk=";
+    static final long TOKEN_EXPIRATION_MILLIS = 3_600_000L;
+
+    private Fixtures() {
+    }
+
+    static JwtUtils jwtUtils() {
+        return jwtUtils(SigningKey.ES256);
+    }
+
+    // A ring holding one active key of the given algorithm, with the HMAC secret accepted for key-less tokens
+    static JwtUtils jwtUtils(String algorithm) {
+        SigningKeyRing keyRing = new SigningKeyRing(JWT_SECRET);
+        keyRing.replace(List.of(SigningKey.generate(algorithm, Instant.EPOCH)));
+        return new JwtUtils(TOKEN_EXPIRATION_MILLIS, keyRing);
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId(4_242L);
+        user.setName("Benchmark User");
+        user.setEmail("benchmark.user@auth.test");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoO5x0Lh8m8W1ZJQk2CwW0sQ1r8c1vJx3K");
+        user.setRoles(EnumSet.of(User.Role.USER, User.Role.ADMIN));
+        user.setAccountEnabled(true);
+        user.setEmailVerified(true);
+        user.setCreatedAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+        user.setUpdatedAt(LocalDateTime.of(2025, 6, 1, 12, 0));
+        return user;
+    }
+
+    // Keeps per-request INFO logging from flooding the benchmark output
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+}
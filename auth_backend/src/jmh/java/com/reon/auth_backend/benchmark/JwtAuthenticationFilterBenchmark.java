@@ -0,0 +1,82 @@
+package com.reon.auth_backend.benchmark;
+
+import com.reon.auth_backend.jwt.JwtAuthenticationFilter;
+import com.reon.auth_backend.jwt.JwtUtils;
+import com.reon.auth_backend.jwt.TokenPrincipalCache;
+import com.reon.auth_backend.jwt.TokenRevocationService;
+import com.reon.auth_backend.mapper.UserMapper;
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.service.impl.CustomUserDetailService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full filter pass per invocation: token extraction, principal resolution and security context
+ * population. {@code cached} serves the principal from the token cache; {@code uncached} clears it first,
+ * so the signature is verified and the principal is loaded through a mocked user details service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+    private JwtAuthenticationFilter filter;
+    private TokenPrincipalCache tokenPrincipalCache;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        Fixtures.quietLogging();
+        JwtUtils jwtUtils = Fixtures.jwtUtils();
+        User user = Fixtures.user();
+        token = jwtUtils.generateToken(user);
+
+        CustomUserDetailService userDetailService = Mockito.mock(CustomUserDetailService.class);
+        Mockito.when(userDetailService.loadPrincipal(user.getEmail())).thenReturn(UserMapper.toPrincipal(user));
+        tokenPrincipalCache = new TokenPrincipalCache(10_000, Duration.ofMinutes(5));
+        // Nothing is revoked, so the revocation check never leaves its Bloom filters
+        TokenRevocationService revocations = new TokenRevocationService(new StringRedisTemplate(),
+                new ReactiveStringRedisTemplate(new LettuceConnectionFactory()), new SimpleMeterRegistry(),
+                3_600_000, 100_000, 0.001);
+        filter = new JwtAuthenticationFilter(jwtUtils, userDetailService, tokenPrincipalCache, revocations, false,
+                new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public MockHttpServletResponse cached() throws ServletException, IOException {
+        return pass();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse uncached() throws ServletException, IOException {
+        tokenPrincipalCache.evictAll();
+        return pass();
+    }
+
+    private MockHttpServletResponse pass() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/user/profile");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+}
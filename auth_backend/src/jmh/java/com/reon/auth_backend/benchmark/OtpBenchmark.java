@@ -0,0 +1,20 @@
+package com.reon.auth_backend.benchmark;
+
+import com.reon.auth_backend.service.impl.OtpServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OtpBenchmark {
+
+    @Benchmark
+    public String generateOTP() {
+        return OtpServiceImpl.generateOTP();
+    }
+}
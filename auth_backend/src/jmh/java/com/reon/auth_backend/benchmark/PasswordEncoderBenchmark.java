@@ -0,0 +1,45 @@
+package com.reon.auth_backend.benchmark;
+
+import com.reon.auth_backend.security.PasswordEncoders;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and verify cost for each supported algorithm. Run with {@code -t <cores>} and divide by the
+ * core count for hashes per second per core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+    private static final String PASSWORD = "correct horse battery";
+
+    @Param({"bcrypt-8", "bcrypt-10", "bcrypt-12", "argon2", "pbkdf2"})
+    public String setting;
+
+    private PasswordEncoder encoder;
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        String algorithm = setting.startsWith(PasswordEncoders.BCRYPT) ? PasswordEncoders.BCRYPT : setting;
+        int strength = setting.startsWith(PasswordEncoders.BCRYPT) ? Integer.parseInt(setting.substring(7)) : 10;
+        encoder = PasswordEncoders.delegating(algorithm, strength, 19456, 2, 1, 600000);
+        encoded = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, encoded);
+    }
+}
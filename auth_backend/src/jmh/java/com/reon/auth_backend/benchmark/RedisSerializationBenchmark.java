@@ -0,0 +1,47 @@
+package com.reon.auth_backend.benchmark;
+
+import com.reon.auth_backend.cache.UserResponseCodec;
+import com.reon.auth_backend.configuration.RedisConfig;
+import com.reon.auth_backend.dto.UserResponseDTO;
+import com.reon.auth_backend.mapper.UserMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Value serialization as done by the users/usersByEmail caches (see RedisConfig), with the JSON fallback
+ * and the binary codec side by side. The entry size of each is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisSerializationBenchmark {
+    @Param({"json", "binary"})
+    private String codec;
+
+    private RedisSerializer<Object> serializer;
+    private UserResponseDTO dto;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        serializer = new UserResponseCodec(RedisConfig.cacheValueSerializer(), "binary".equals(codec));
+        dto = UserMapper.responseToUser(Fixtures.user());
+        bytes = serializer.serialize(dto);
+        System.out.printf("%n%s: %d bytes per entry%n", codec, bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(dto);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+}
@@ -0,0 +1,52 @@
+package com.reon.auth_backend.benchmark;
+
+import com.reon.auth_backend.jwt.TokenRevocationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-request revocation check for a token that was never revoked, with the local filters
+ * holding {@code revoked} entries. Such tokens are answered by the Bloom filters alone, so no Redis is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenRevocationBenchmark {
+    @Param({"1000", "50000"})
+    private int revoked;
+
+    private TokenRevocationService revocations;
+    private String[] tokenIds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Fixtures.quietLogging();
+        revocations = new TokenRevocationService(new StringRedisTemplate(),
+                new ReactiveStringRedisTemplate(new LettuceConnectionFactory()), new SimpleMeterRegistry(),
+                3_600_000, 100_000, 0.001);
+        for (int i = 0; i < revoked; i++) {
+            revocations.addLocal("jti:" + UUID.randomUUID());
+            revocations.addLocal("user:revoked-" + i + "@auth.test");
+        }
+        tokenIds = new String[1024];
+        for (int i = 0; i < tokenIds.length; i++) {
+            tokenIds[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @Benchmark
+    public boolean notRevoked() {
+        String tokenId = tokenIds[next++ & (tokenIds.length - 1)];
+        return revocations.isRevoked(tokenId, "active-user@auth.test", System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,41 @@
+package com.reon.auth_backend.benchmark;
+
+import com.reon.auth_backend.dto.UserResponseDTO;
+import com.reon.auth_backend.mapper.UserMapper;
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.model.UserPrincipal;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserMappingBenchmark {
+    private User user;
+
+    @Setup
+    public void setUp() {
+        user = Fixtures.user();
+    }
+
+    @Benchmark
+    public UserResponseDTO responseToUser() {
+        return UserMapper.responseToUser(user);
+    }
+
+    @Benchmark
+    public UserPrincipal toPrincipal() {
+        return UserMapper.toPrincipal(user);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return user.getAuthorities();
+    }
+}
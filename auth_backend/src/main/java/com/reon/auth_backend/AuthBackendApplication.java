@@ -3,9 +3,13 @@ package com.reon.auth_backend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableCaching
+@EnableAsync
+@EnableScheduling
 public class AuthBackendApplication {
 
     public static void main(String[] args) {
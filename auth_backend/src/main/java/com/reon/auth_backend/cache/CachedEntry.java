@@ -0,0 +1,8 @@
+package com.reon.auth_backend.cache;
+
+/**
+ * A cached value with the metadata early refresh needs: when the entry expires and how long it took to
+ * load, both in milliseconds. Stored as the value of the coalesced caches.
+ */
+public record CachedEntry(Object value, long expiresAtMillis, long loadMillis) {
+}
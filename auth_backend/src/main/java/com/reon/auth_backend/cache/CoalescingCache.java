@@ -0,0 +1,282 @@
+package com.reon.auth_backend.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decorates a shared cache so a popular key is never loaded by many callers at once.
+ * <ul>
+ *     <li>Concurrent misses on one node share a single load ({@link SingleFlight}).</li>
+ *     <li>Across nodes, the loader holds a short Redis lock; the others poll for its value for up to
+ *     {@code lockWait} and only then load themselves.</li>
+ *     <li>Hits are refreshed early with probability rising towards expiry, scaled by the load time
+ *     (XFetch), so a hot entry is replaced by one caller before it expires.</li>
+ *     <li>Each entry's TTL is shortened by a random fraction of up to {@code ttlJitter}, so entries
+ *     written together do not expire together.</li>
+ *     <li>{@link #put} and {@link #evict} increment a per-key generation in Redis. A load reads it before
+ *     calling the loader and removes its own write again if the generation has moved, so a load that
+ *     overlaps an update or eviction cannot leave its older value behind.</li>
+ * </ul>
+ * Only {@link #get(Object, Callable)} coalesces, so callers use {@code @Cacheable(sync = true)}.
+ */
+public class CoalescingCache implements Cache {
+    private static final String LOCK_PREFIX = "cache-lock:";
+    private static final String GENERATION_PREFIX = "cache-generation:";
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(25);
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+    private static final RedisScript<Long> NEXT_GENERATION_SCRIPT = new DefaultRedisScript<>("""
+            local generation = redis.call('INCR', KEYS[1])
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            return generation
+            """, Long.class);
+
+    private final Logger log = LoggerFactory.getLogger(CoalescingCache.class);
+    private final Cache delegate;
+    private final StringRedisTemplate redisTemplate;
+    private final SingleFlight<Object, Object> loads = new SingleFlight<>();
+    private final Duration ttl;
+    private final double ttlJitter;
+    private final double beta;
+    private final Duration lockTtl;
+    private final Duration lockWait;
+    // Last observed load time, used for entries written through put() where it is unknown
+    private volatile long typicalLoadMillis = 1;
+
+    public CoalescingCache(Cache delegate, StringRedisTemplate redisTemplate, Duration ttl, double ttlJitter,
+                           double beta, Duration lockTtl, Duration lockWait) {
+        this.delegate = delegate;
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+        this.ttlJitter = ttlJitter;
+        this.beta = beta;
+        this.lockTtl = lockTtl;
+        this.lockWait = lockWait;
+    }
+
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        CachedEntry entry = read(key);
+        return entry != null ? new SimpleValueWrapper(entry.value()) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        CachedEntry entry = read(key);
+        if (entry == null) {
+            return null;
+        }
+        if (type != null && !type.isInstance(entry.value())) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + entry.value());
+        }
+        return (T) entry.value();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        CachedEntry entry = read(key);
+        if (entry == null) {
+            return (T) loads.run(key, () -> loadCoordinated(key, valueLoader));
+        }
+        if (!refreshEarly(entry)) {
+            return (T) entry.value();
+        }
+        // Only the caller holding the lock reloads; everyone else keeps serving the still valid value
+        return (T) loads.run(key, () -> {
+            String lock = lock(key);
+            if (lock == null) {
+                return entry.value();
+            }
+            try {
+                log.debug("Cache:: Refreshing {}::{} ahead of expiry", getName(), key);
+                return load(key, valueLoader);
+            } finally {
+                unlock(key, lock);
+            }
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        nextGeneration(key);
+        delegate.put(key, wrap(value, typicalLoadMillis));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = delegate.putIfAbsent(key, wrap(value, typicalLoadMillis));
+        return existing != null && existing.get() instanceof CachedEntry entry ? new SimpleValueWrapper(entry.value()) : existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        nextGeneration(key);
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        nextGeneration(key);
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+
+    private Object loadCoordinated(Object key, Callable<?> valueLoader) {
+        String lock = lock(key);
+        if (lock != null) {
+            try {
+                // Another node may have stored the value between our miss and taking the lock
+                CachedEntry stored = read(key);
+                return stored != null ? stored.value() : load(key, valueLoader);
+            } finally {
+                unlock(key, lock);
+            }
+        }
+        long deadline = System.nanoTime() + lockWait.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            CachedEntry stored = read(key);
+            if (stored != null) {
+                return stored.value();
+            }
+        }
+        log.debug("Cache:: Gave up waiting for {}::{} from another node", getName(), key);
+        return load(key, valueLoader);
+    }
+
+    private Object load(Object key, Callable<?> valueLoader) {
+        String generation = generation(key);
+        long start = System.nanoTime();
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        long loadMillis = Math.max(1, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        typicalLoadMillis = loadMillis;
+        if (value != null) {
+            delegate.put(key, wrap(value, loadMillis));
+            // A put or evict since the load started may have been overwritten; the next read loads again
+            if (generation != null && !generation.equals(generation(key))) {
+                log.debug("Cache:: {}::{} changed while loading, dropping the loaded value", getName(), key);
+                delegate.evict(key);
+            }
+        }
+        return value;
+    }
+
+    private CachedEntry wrap(Object value, long loadMillis) {
+        long jitter = (long) (ttl.toMillis() * ttlJitter * ThreadLocalRandom.current().nextDouble());
+        return new CachedEntry(value, System.currentTimeMillis() + ttl.toMillis() - jitter, loadMillis);
+    }
+
+    // XFetch: refresh when now - loadTime * beta * ln(rand) passes the expiry; -ln(rand) is exponentially distributed
+    private boolean refreshEarly(CachedEntry entry) {
+        double gap = -entry.loadMillis() * beta * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + gap >= entry.expiresAtMillis();
+    }
+
+    // Entries written before the decorator existed are plain values without metadata
+    private CachedEntry read(Object key) {
+        ValueWrapper wrapper = delegate.get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object value = wrapper.get();
+        return value instanceof CachedEntry entry ? entry : new CachedEntry(value, Long.MAX_VALUE, 0);
+    }
+
+    // Returns the lock token, or null if another node holds the lock; fails open when redis is unavailable
+    private String lock(Object key) {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey(key), token, lockTtl);
+            return Boolean.TRUE.equals(acquired) ? token : null;
+        } catch (RuntimeException e) {
+            log.warn("Cache:: Could not take load lock for {}::{}: {}", getName(), key, e.getMessage());
+            return token;
+        }
+    }
+
+    private void unlock(Object key, String token) {
+        try {
+            redisTemplate.execute(UNLOCK_SCRIPT, List.of(lockKey(key)), token);
+        } catch (RuntimeException e) {
+            log.warn("Cache:: Could not release load lock for {}::{}: {}", getName(), key, e.getMessage());
+        }
+    }
+
+    // "" if the key was never written through put/evict; null if redis could not be read, which skips the check
+    private String generation(Object key) {
+        try {
+            String generation = redisTemplate.opsForValue().get(generationKey(key));
+            return generation != null ? generation : "";
+        } catch (RuntimeException e) {
+            log.warn("Cache:: Could not read the generation of {}::{}: {}", getName(), key, e.getMessage());
+            return null;
+        }
+    }
+
+    // Kept for a TTL, longer than any load that could have started before it
+    private void nextGeneration(Object key) {
+        try {
+            redisTemplate.execute(NEXT_GENERATION_SCRIPT, List.of(generationKey(key)), String.valueOf(ttl.toMillis()));
+        } catch (RuntimeException e) {
+            log.warn("Cache:: Could not advance the generation of {}::{}: {}", getName(), key, e.getMessage());
+        }
+    }
+
+    private String generationKey(Object key) {
+        return GENERATION_PREFIX + getName() + ":" + key;
+    }
+
+    private String lockKey(Object key) {
+        return LOCK_PREFIX + getName() + ":" + key;
+    }
+}
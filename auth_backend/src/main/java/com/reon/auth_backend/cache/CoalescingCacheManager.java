@@ -0,0 +1,41 @@
+package com.reon.auth_backend.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Hands out the named caches of another manager wrapped in a {@link CoalescingCache}; all other caches
+ * are returned as they are.
+ */
+public class CoalescingCacheManager implements CacheManager {
+    private final CacheManager delegate;
+    private final Set<String> coalesced;
+    private final Function<Cache, CoalescingCache> decorator;
+    private final Map<String, Cache> decorated = new ConcurrentHashMap<>();
+
+    public CoalescingCacheManager(CacheManager delegate, Set<String> coalesced, Function<Cache, CoalescingCache> decorator) {
+        this.delegate = delegate;
+        this.coalesced = Set.copyOf(coalesced);
+        this.decorator = decorator;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = delegate.getCache(name);
+        if (cache == null || !coalesced.contains(name)) {
+            return cache;
+        }
+        return decorated.computeIfAbsent(name, ignored -> decorator.apply(cache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+}
@@ -0,0 +1,237 @@
+package com.reon.auth_backend.cache;
+
+import com.reon.auth_backend.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Node-local Bloom filter of registered emails, so lookups for unknown addresses are answered without
+ * a query. The filter is rebuilt by streaming the users table at startup and on a schedule; emails added
+ * in between are put on every node through {@link #ADDED_CHANNEL}. Deleted users stay in the filter until
+ * the next rebuild, which only costs a query. Until the first rebuild finishes every email is reported as
+ * possibly present.
+ * <p>
+ * An announcement can be lost or still in flight, so additions are also written to the shared
+ * {@code email-index:recent} sorted set before the insert commits, and a local miss is only definite once
+ * that set does not have the email either. Entries are kept for two rebuild intervals, by which time every
+ * node has rebuilt from a table that contains them.
+ * <p>
+ * Emails are lower-cased, matching the case-insensitive unique index on the column.
+ */
+@Component
+public class EmailIndex {
+    public static final String ADDED_CHANNEL = "email-index:added";
+    private static final String SHARED_RECENT_KEY = "email-index:recent";
+    private static final long RECENT_MARGIN_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Logger log = LoggerFactory.getLogger(EmailIndex.class);
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final long sharedRetentionMillis;
+    private final Counter definiteMisses;
+    private final Counter probableHits;
+    // Additions since shortly before the last rebuild started, re-applied after the swap; the margin covers
+    // inserts that were announced before the rebuild but committed after the table was read
+    private final Map<String, Long> recent = new ConcurrentHashMap<>();
+    private final AtomicLong insertions = new AtomicLong();
+    private volatile BloomFilter filter;
+    private volatile boolean ready;
+
+    public EmailIndex(UserRepository userRepository, StringRedisTemplate redisTemplate,
+                      PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                      @Value("${email-index.expected-insertions:1000000}") long expectedInsertions,
+                      @Value("${email-index.false-positive-probability:0.01}") double falsePositiveProbability,
+                      @Value("${email-index.rebuild-interval-ms:21600000}") long rebuildIntervalMillis) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.sharedRetentionMillis = 2 * rebuildIntervalMillis;
+        this.filter = BloomFilter.create(expectedInsertions, falsePositiveProbability);
+        this.definiteMisses = meterRegistry.counter("auth.email_index.lookups", "result", "definite_miss");
+        this.probableHits = meterRegistry.counter("auth.email_index.lookups", "result", "probable_hit");
+        Gauge.builder("auth.email_index.entries", insertions, AtomicLong::get)
+                .description("Emails put into the filter since the last rebuild")
+                .register(meterRegistry);
+        Gauge.builder("auth.email_index.memory", this, index -> index.filter.bitSize() / 8.0)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("auth.email_index.false_positive_probability", this, EmailIndex::estimatedFalsePositiveProbability)
+                .description("Estimated from the current fill; configured target is " + falsePositiveProbability)
+                .register(meterRegistry);
+    }
+
+    /**
+     * False means the email is definitely not registered. True means it probably is, and the caller
+     * has to ask the database.
+     */
+    public boolean mightContain(String email) {
+        if (!ready || email == null) {
+            probableHits.increment();
+            return true;
+        }
+        String normalized = normalize(email);
+        if (filter.mightContain(normalized) || addedElsewhere(normalized)) {
+            probableHits.increment();
+            return true;
+        }
+        definiteMisses.increment();
+        return false;
+    }
+
+    /**
+     * Call before the insert commits. The shared set is written first and a failure propagates, so an
+     * email can never be committed without other nodes being able to find it; a rolled back insert only
+     * leaves a false positive behind.
+     */
+    public void add(String email) {
+        String normalized = normalize(email);
+        recordShared(List.of(normalized));
+        addLocal(normalized);
+        announce(normalized);
+    }
+
+    // One announcement for a whole batch, emails separated by newlines
+    public void addAll(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return;
+        }
+        List<String> normalized = emails.stream().map(EmailIndex::normalize).toList();
+        recordShared(normalized);
+        StringBuilder message = new StringBuilder();
+        for (String email : normalized) {
+            addLocal(email);
+            message.append(email).append('\n');
+        }
+        announce(message.toString());
+    }
+
+    // Called for every message on the channel, including the ones this node published
+    public void addAnnounced(String message) {
+        for (String email : message.split("\n")) {
+            if (!email.isEmpty()) {
+                addLocal(email);
+            }
+        }
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${email-index.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        long startedAt = System.nanoTime();
+        BloomFilter rebuilt;
+        long count;
+        try {
+            long total = userRepository.count();
+            // Sized with headroom so the false positive rate holds until the next rebuild
+            rebuilt = BloomFilter.create(Math.max(expectedInsertions, 2 * total), falsePositiveProbability);
+            count = readOnlyTransaction.execute(status -> {
+                long streamed = 0;
+                try (Stream<String> emails = userRepository.streamAllEmails()) {
+                    for (String email : (Iterable<String>) emails::iterator) {
+                        rebuilt.put(normalize(email));
+                        streamed++;
+                    }
+                }
+                return streamed;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Cache:: Email index rebuild failed, keeping the current filter: {}", e.getMessage());
+            return;
+        }
+        filter = rebuilt;
+        recent.keySet().forEach(rebuilt::put);
+        recent.values().removeIf(receivedAt -> receivedAt - startedAt < -RECENT_MARGIN_NANOS);
+        insertions.set(count + recent.size());
+        ready = true;
+        trimShared();
+        log.info("Cache:: Rebuilt email index from {} users in {}ms ({} bytes)", count,
+                (System.nanoTime() - startedAt) / 1_000_000, rebuilt.bitSize() / 8);
+    }
+
+    // Only saves other nodes a lookup in the shared set, so a lost announcement does not fail the insert
+    private void announce(String message) {
+        AfterCommit.run(() -> {
+            try {
+                redisTemplate.convertAndSend(ADDED_CHANNEL, message);
+            } catch (RuntimeException e) {
+                log.warn("Cache:: Could not announce new emails, other nodes find them in the shared set: {}",
+                        e.getMessage());
+            }
+        });
+    }
+
+    private void recordShared(List<String> normalized) {
+        double now = System.currentTimeMillis();
+        Set<ZSetOperations.TypedTuple<String>> entries = new HashSet<>();
+        for (String email : normalized) {
+            entries.add(ZSetOperations.TypedTuple.of(email, now));
+        }
+        redisTemplate.opsForZSet().add(SHARED_RECENT_KEY, entries);
+    }
+
+    // Consulted on a local miss; when redis cannot answer the miss is not trusted and the caller asks the database
+    private boolean addedElsewhere(String normalized) {
+        try {
+            if (redisTemplate.opsForZSet().score(SHARED_RECENT_KEY, normalized) == null) {
+                return false;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Cache:: Could not read recent emails, treating {} as possibly present: {}", normalized, e.getMessage());
+            return true;
+        }
+        addLocal(normalized);
+        return true;
+    }
+
+    private void trimShared() {
+        try {
+            redisTemplate.opsForZSet().removeRangeByScore(SHARED_RECENT_KEY, 0,
+                    System.currentTimeMillis() - sharedRetentionMillis);
+        } catch (RuntimeException e) {
+            log.warn("Cache:: Could not trim recent emails: {}", e.getMessage());
+        }
+    }
+
+    private void addLocal(String normalized) {
+        recent.put(normalized, System.nanoTime());
+        filter.put(normalized);
+        insertions.incrementAndGet();
+    }
+
+    // (1 - e^(-kn/m))^k for the current number of entries
+    private double estimatedFalsePositiveProbability() {
+        BloomFilter current = filter;
+        double k = current.hashFunctions();
+        return Math.pow(1 - Math.exp(-k * insertions.get() / current.bitSize()), k);
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,205 @@
+package com.reon.auth_backend.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reon.auth_backend.jwt.TokenPrincipalCache;
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.model.UserPrincipal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Two-tier cache of {@link UserPrincipal}s: a local Caffeine L1 in front of a shared Redis L2.
+ * Writes call {@link #invalidate(Long, String)}, which deletes the L2 entry and broadcasts the user's
+ * id and email on {@link #INVALIDATION_CHANNEL} so every replica drops its L1, token cache and
+ * second-level cache entries for that user.
+ * <p>
+ * Each user also has a generation key that invalidation increments. A load remembers the generation it
+ * saw before reading the database and only stores its result if the generation is unchanged, so a load
+ * that overlaps an invalidation cannot put the old row back into Redis. Both keys share a hash tag.
+ */
+@Component
+public class UserDetailsCache {
+    public static final String INVALIDATION_CHANNEL = "user-details:invalidate";
+    private static final String KEY_PREFIX = "user-details:";
+    private static final RedisScript<Long> WRITE_SCRIPT = new DefaultRedisScript<>("""
+            local generation = redis.call('GET', KEYS[2]) or ''
+            if generation ~= ARGV[1] then
+                return 0
+            end
+            redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+            return 1
+            """, Long.class);
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('DEL', KEYS[1])
+            local generation = redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[1])
+            return generation
+            """, Long.class);
+
+    private final Logger log = LoggerFactory.getLogger(UserDetailsCache.class);
+    private final Cache<String, UserPrincipal> local;
+    private final SingleFlight<String, UserPrincipal> loads = new SingleFlight<>();
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final TokenPrincipalCache tokenPrincipalCache;
+    private final Duration remoteTtl;
+
+    public UserDetailsCache(StringRedisTemplate redisTemplate, ReactiveStringRedisTemplate reactiveRedisTemplate,
+                            TokenPrincipalCache tokenPrincipalCache,
+                            @Value("${user-details-cache.local.max-size:10000}") long localMaxSize,
+                            @Value("${user-details-cache.local.ttl:1m}") Duration localTtl,
+                            @Value("${user-details-cache.remote.ttl:15m}") Duration remoteTtl) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.tokenPrincipalCache = tokenPrincipalCache;
+        this.remoteTtl = remoteTtl;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+    }
+
+    // Loads outside Caffeine's compute: its map lock is a monitor, and blocking on redis or the database
+    // while holding it would pin the carrier of a virtual thread
+    public UserPrincipal get(String email, Function<String, UserPrincipal> loader) {
+        UserPrincipal cached = local.getIfPresent(email);
+        if (cached != null) {
+            return cached;
+        }
+        // Concurrent misses for the same user share one L2 read and at most one database load
+        return loads.run(email, () -> {
+            Remote remote = readRemote(email);
+            if (remote.principal() != null) {
+                local.put(email, remote.principal());
+                return remote.principal();
+            }
+            UserPrincipal loaded = loader.apply(email);
+            // Invalidated while loading: hand the result to this caller only
+            if (writeRemote(loaded, remote.generation())) {
+                local.put(email, loaded);
+            }
+            return loaded;
+        });
+    }
+
+    // Non-blocking lookup for the introspection path: L1, then L2, and empty rather than a database read
+    public Mono<UserPrincipal> getReactive(String email) {
+        UserPrincipal cached = local.getIfPresent(email);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return reactiveRedisTemplate.opsForValue().get(valueKey(email))
+                .map(value -> parse(email, value))
+                .doOnNext(principal -> local.put(email, principal))
+                .onErrorResume(e -> {
+                    log.warn("Cache:: Failed to read user details for {} from redis: {}", email, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    // Deferred until commit when called inside a transaction so no node can reload the old row
+    public void invalidate(Long userId, String email) {
+        AfterCommit.run(() -> broadcastInvalidation(new Invalidation(userId, email)));
+    }
+
+    // Called for every message on the invalidation channel, including the ones this node published
+    public void evictLocal(String email) {
+        local.invalidate(email);
+        tokenPrincipalCache.evictUser(email);
+    }
+
+    private void broadcastInvalidation(Invalidation invalidation) {
+        String email = invalidation.email();
+        evictLocal(email);
+        try {
+            redisTemplate.execute(INVALIDATE_SCRIPT, List.of(valueKey(email), generationKey(email)),
+                    String.valueOf(remoteTtl.toMillis()));
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, invalidation.toMessage());
+        } catch (RuntimeException e) {
+            log.error("Cache:: Failed to broadcast invalidation for {}", email, e);
+        }
+    }
+
+    // L2 entries are stored as "id:roleMask:enabled" to keep them small and free of class metadata.
+    // The generation is read in the same round trip; a null generation means Redis could not be read.
+    private Remote readRemote(String email) {
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(List.of(valueKey(email), generationKey(email)));
+            if (values == null) {
+                return new Remote(null, null);
+            }
+            String value = values.get(0);
+            String generation = values.get(1);
+            return new Remote(value == null ? null : parse(email, value), generation == null ? "" : generation);
+        } catch (RuntimeException e) {
+            log.warn("Cache:: Failed to read user details for {} from redis: {}", email, e.getMessage());
+            return new Remote(null, null);
+        }
+    }
+
+    private static UserPrincipal parse(String email, String value) {
+        String[] parts = value.split(":");
+        return new UserPrincipal(Long.parseLong(parts[0]), email,
+                User.Role.fromMask(Integer.parseInt(parts[1])), "1".equals(parts[2]));
+    }
+
+    // False if the user was invalidated since the generation was read
+    private boolean writeRemote(UserPrincipal principal, String generation) {
+        if (generation == null) {
+            return true;
+        }
+        String email = principal.getEmail();
+        String value = principal.getId() + ":" + User.Role.toMask(principal.getRoles()) + ":"
+                + (principal.isAccountEnabled() ? "1" : "0");
+        try {
+            Long written = redisTemplate.execute(WRITE_SCRIPT, List.of(valueKey(email), generationKey(email)),
+                    generation, value, String.valueOf(remoteTtl.toMillis()));
+            return written == null || written == 1;
+        } catch (RuntimeException e) {
+            log.warn("Cache:: Failed to write user details for {} to redis: {}", email, e.getMessage());
+            return true;
+        }
+    }
+
+    // The hash tag keeps a user's value and generation in one cluster slot, as the scripts require
+    private static String valueKey(String email) {
+        return KEY_PREFIX + "{" + email + "}";
+    }
+
+    private static String generationKey(String email) {
+        return KEY_PREFIX + "{" + email + "}:generation";
+    }
+
+    private record Remote(UserPrincipal principal, String generation) {
+    }
+
+    // Sent as "id:email"; the id is empty when the caller did not know it
+    public record Invalidation(Long userId, String email) {
+        public static Invalidation parse(String message) {
+            int separator = message.indexOf(':');
+            String id = separator < 0 ? null : message.substring(0, separator);
+            if (id == null || !id.chars().allMatch(Character::isDigit)) {
+                // A bare email, as published before ids were added
+                return new Invalidation(null, message);
+            }
+            return new Invalidation(id.isEmpty() ? null : Long.valueOf(id), message.substring(separator + 1));
+        }
+
+        String toMessage() {
+            return (userId == null ? "" : userId.toString()) + ":" + email;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.reon.auth_backend.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Key-targeted eviction for the {@code users}/{@code usersByEmail} DTO caches, for writes
+ * where the affected keys are only known inside the method body.
+ */
+@Component
+public class UserResponseCache {
+    public static final String USERS = "users";
+    public static final String USERS_BY_EMAIL = "usersByEmail";
+    public static final String USER_COUNTS = "userCounts";
+
+    private final CacheManager cacheManager;
+
+    public UserResponseCache(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public void evict(Long id, String email) {
+        AfterCommit.run(() -> {
+            if (id != null) {
+                evict(USERS, id);
+            }
+            if (email != null) {
+                evict(USERS_BY_EMAIL, email);
+            }
+        });
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.reon.auth_backend.cache;
+
+import com.reon.auth_backend.dto.UserResponseDTO;
+import com.reon.auth_backend.model.User;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Value codec for the {@code users}/{@code usersByEmail} caches. {@link UserResponseDTO}s are written in a
+ * hand-rolled binary layout behind a version byte; anything else, and every value whose first byte is not
+ * a known version, goes through the JSON serializer. JSON always starts with a printable character, so both
+ * formats can be read side by side while a rollout is in progress.
+ * <p>
+ * Version 1: version, flags (emailVerified, accountEnabled, createdAt present, updatedAt present),
+ * varint id + 1 (0 = null), role mask, name and email as varint length + 1 (0 = null) followed by UTF-8,
+ * then each present timestamp as zigzag varint epoch seconds (UTC) and varint nanos.
+ * <p>
+ * A {@link CachedEntry} is written as its own version byte, varint expiry and load time in millis, and
+ * then its value in either format.
+ */
+public class UserResponseCodec implements RedisSerializer<Object> {
+    static final byte VERSION_1 = 1;
+    static final byte ENTRY_VERSION_1 = 2;
+
+    private static final int EMAIL_VERIFIED = 1;
+    private static final int ACCOUNT_ENABLED = 1 << 1;
+    private static final int CREATED_AT = 1 << 2;
+    private static final int UPDATED_AT = 1 << 3;
+
+    private final RedisSerializer<Object> json;
+    private final boolean writeBinary;
+
+    // writeBinary = false keeps writing JSON, for nodes that must stay readable by older versions
+    public UserResponseCodec(RedisSerializer<Object> json, boolean writeBinary) {
+        this.json = json;
+        this.writeBinary = writeBinary;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (writeBinary && value instanceof CachedEntry entry) {
+            byte[] inner = serialize(entry.value());
+            Writer out = new Writer(24 + inner.length);
+            out.write(ENTRY_VERSION_1);
+            out.varLong(entry.expiresAtMillis());
+            out.varLong(entry.loadMillis());
+            out.raw(inner);
+            return out.toByteArray();
+        }
+        if (!writeBinary || !(value instanceof UserResponseDTO dto)) {
+            return json.serialize(value);
+        }
+        byte[] name = utf8(dto.getName());
+        byte[] email = utf8(dto.getEmail());
+        Writer out = new Writer(32 + (name != null ? name.length : 0) + (email != null ? email.length : 0));
+        int flags = (dto.isEmailVerified() ? EMAIL_VERIFIED : 0) | (dto.isAccountEnabled() ? ACCOUNT_ENABLED : 0)
+                | (dto.getCreatedAt() != null ? CREATED_AT : 0) | (dto.getUpdatedAt() != null ? UPDATED_AT : 0);
+        out.write(VERSION_1);
+        out.write(flags);
+        out.varLong(dto.getId() != null ? dto.getId() + 1 : 0);
+        out.varLong(dto.getRoles() != null ? User.Role.toMask(dto.getRoles()) : 0);
+        out.bytes(name);
+        out.bytes(email);
+        out.timestamp(dto.getCreatedAt());
+        out.timestamp(dto.getUpdatedAt());
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes != null && bytes.length > 0 && bytes[0] == ENTRY_VERSION_1) {
+            try {
+                Reader in = new Reader(bytes, 1);
+                long expiresAtMillis = in.varLong();
+                long loadMillis = in.varLong();
+                return new CachedEntry(deserialize(in.remaining()), expiresAtMillis, loadMillis);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new SerializationException("Truncated cache entry", e);
+            }
+        }
+        if (bytes == null || bytes.length == 0 || bytes[0] != VERSION_1) {
+            return json.deserialize(bytes);
+        }
+        try {
+            Reader in = new Reader(bytes, 1);
+            int flags = in.read();
+            UserResponseDTO dto = new UserResponseDTO();
+            long id = in.varLong();
+            dto.setId(id != 0 ? id - 1 : null);
+            dto.setRoles(User.Role.fromMask((int) in.varLong()));
+            dto.setName(in.string());
+            dto.setEmail(in.string());
+            dto.setEmailVerified((flags & EMAIL_VERIFIED) != 0);
+            dto.setAccountEnabled((flags & ACCOUNT_ENABLED) != 0);
+            dto.setCreatedAt((flags & CREATED_AT) != 0 ? in.timestamp() : null);
+            dto.setUpdatedAt((flags & UPDATED_AT) != 0 ? in.timestamp() : null);
+            return dto;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated user cache entry", e);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void write(int value) {
+            if (position == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void varLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void bytes(byte[] value) {
+            if (value == null) {
+                varLong(0);
+                return;
+            }
+            varLong(value.length + 1L);
+            raw(value);
+        }
+
+        void raw(byte[] value) {
+            if (position + value.length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + value.length));
+            }
+            System.arraycopy(value, 0, buffer, position, value.length);
+            position += value.length;
+        }
+
+        void timestamp(LocalDateTime value) {
+            if (value != null) {
+                long seconds = value.toEpochSecond(ZoneOffset.UTC);
+                varLong((seconds << 1) ^ (seconds >> 63));
+                varLong(value.getNano());
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int read() {
+            return buffer[position++] & 0xFF;
+        }
+
+        long varLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint in user cache entry");
+        }
+
+        String string() {
+            long length = varLong();
+            if (length == 0) {
+                return null;
+            }
+            int size = (int) (length - 1);
+            if (position + size > buffer.length) {
+                throw new SerializationException("Truncated user cache entry");
+            }
+            String value = new String(buffer, position, size, StandardCharsets.UTF_8);
+            position += size;
+            return value;
+        }
+
+        byte[] remaining() {
+            return Arrays.copyOfRange(buffer, position, buffer.length);
+        }
+
+        LocalDateTime timestamp() {
+            long zigzag = varLong();
+            long seconds = (zigzag >>> 1) ^ -(zigzag & 1);
+            return LocalDateTime.ofEpochSecond(seconds, (int) varLong(), ZoneOffset.UTC);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.reon.auth_backend.cache;
+
+import com.reon.auth_backend.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+/**
+ * This node's Hibernate second-level cache of users. Changes made on other nodes arrive through the
+ * user details invalidation channel and evict only the changed user's entity and email -> id entries,
+ * so the rest of the region stays warm.
+ */
+@Component
+public class UserSecondLevelCache {
+    private final SessionFactoryImplementor sessionFactory;
+    private final EntityPersister persister;
+
+    public UserSecondLevelCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(User.class);
+    }
+
+    public void evict(Long userId, String email) {
+        if (userId == null) {
+            // Without the id the entity entry cannot be found, so the whole region goes
+            sessionFactory.getCache().evictEntityData(User.class);
+            sessionFactory.getCache().evictNaturalIdData(User.class);
+            return;
+        }
+        sessionFactory.getCache().evictEntityData(User.class, userId);
+        NaturalIdDataAccess naturalIds = persister.getNaturalIdMapping().getCacheAccess();
+        if (naturalIds != null) {
+            // The key needs a session for its tenant; a stateless one opens no connection for this
+            try (StatelessSession session = sessionFactory.openStatelessSession()) {
+                naturalIds.evict(naturalIds.generateCacheKey(email, persister, (SharedSessionContractImplementor) session));
+            }
+        }
+    }
+}
@@ -1,29 +1,119 @@
 package com.reon.auth_backend.configuration;
 
+import com.reon.auth_backend.cache.UserDetailsCache;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.reon.auth_backend.cache.CachedEntry;
+import com.reon.auth_backend.cache.CoalescingCache;
+import com.reon.auth_backend.cache.CoalescingCacheManager;
+import com.reon.auth_backend.cache.EmailIndex;
+import com.reon.auth_backend.cache.UserResponseCache;
+import com.reon.auth_backend.cache.UserResponseCodec;
+import com.reon.auth_backend.cache.UserSecondLevelCache;
+import com.reon.auth_backend.jwt.SigningKeyRotation;
+import com.reon.auth_backend.jwt.TokenRevocationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Set;
 
 @Configuration
 public class RedisConfig {
+    // cache.user.codec=json keeps writing JSON while older nodes that cannot read the binary format are still running
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, StringRedisTemplate redisTemplate,
+                                     @Value("${cache.user.codec:binary}") String userCodec,
+                                     @Value("${cache.user.ttl:15m}") Duration userTtl,
+                                     @Value("${cache.user.ttl-jitter:0.1}") double userTtlJitter,
+                                     @Value("${cache.user.early-refresh-beta:1.0}") double earlyRefreshBeta,
+                                     @Value("${cache.user.lock-ttl:5s}") Duration lockTtl,
+                                     @Value("${cache.user.lock-wait:1s}") Duration lockWait) {
         RedisCacheConfiguration configuration = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(15))
                 .serializeValuesWith(
-                        RedisSerializationContext.SerializationPair.fromSerializer(
-                                new GenericJackson2JsonRedisSerializer()
-                        )
+                        RedisSerializationContext.SerializationPair.fromSerializer(cacheValueSerializer())
                 );
-        return RedisCacheManager.builder(connectionFactory)
+        // User entries carry their own jittered expiry, which becomes the Redis TTL
+        RedisCacheConfiguration users = configuration
+                .entryTtl((key, value) -> value instanceof CachedEntry entry
+                        ? Duration.ofMillis(Math.max(1, entry.expiresAtMillis() - System.currentTimeMillis()))
+                        : userTtl)
+                .serializeValuesWith(RedisSerializationContext.SerializationPair
+                        .fromSerializer(new UserResponseCodec(cacheValueSerializer(), "binary".equals(userCodec))));
+        // Caches are declared up front and record statistics so their hit ratio is published as cache.gets metrics
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(configuration)
+                .withCacheConfiguration(UserResponseCache.USERS, users)
+                .withCacheConfiguration(UserResponseCache.USERS_BY_EMAIL, users)
+                .withCacheConfiguration(UserResponseCache.USER_COUNTS, configuration.entryTtl(Duration.ofMinutes(1)))
+                .enableStatistics()
                 .build();
+        // Not a bean of its own, so it is initialized here
+        redisCacheManager.afterPropertiesSet();
+        return new CoalescingCacheManager(redisCacheManager,
+                Set.of(UserResponseCache.USERS, UserResponseCache.USERS_BY_EMAIL),
+                cache -> new CoalescingCache(cache, redisTemplate, userTtl, userTtlJitter, earlyRefreshBeta, lockTtl, lockWait));
+    }
+
+    // Keeps the cache.gets metrics of the coalesced caches, which wrap a RedisCache
+    @Bean
+    public CacheMeterBinderProvider<CoalescingCache> coalescingCacheMeterBinderProvider() {
+        return (cache, tags) -> cache.getDelegate() instanceof RedisCache redisCache
+                ? new RedisCacheMetrics(redisCache, tags) : null;
+    }
 
+    // The default mapper has no java.time support, so DTOs with LocalDateTime fields could not be cached
+    public static RedisSerializer<Object> cacheValueSerializer() {
+        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+        serializer.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        return serializer;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       UserDetailsCache userDetailsCache,
+                                                                       TokenRevocationService tokenRevocationService,
+                                                                       SigningKeyRotation signingKeyRotation,
+                                                                       EmailIndex emailIndex,
+                                                                       UserSecondLevelCache userSecondLevelCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> {
+                    UserDetailsCache.Invalidation invalidation =
+                            UserDetailsCache.Invalidation.parse(new String(message.getBody(), StandardCharsets.UTF_8));
+                    userDetailsCache.evictLocal(invalidation.email());
+                    userSecondLevelCache.evict(invalidation.userId(), invalidation.email());
+                },
+                new ChannelTopic(UserDetailsCache.INVALIDATION_CHANNEL)
+        );
+        container.addMessageListener(
+                (message, pattern) -> tokenRevocationService.addLocal(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(TokenRevocationService.REVOCATION_CHANNEL)
+        );
+        container.addMessageListener(
+                (message, pattern) -> signingKeyRotation.reload(),
+                new ChannelTopic(SigningKeyRotation.CHANGED_CHANNEL)
+        );
+        container.addMessageListener(
+                (message, pattern) -> emailIndex.addAnnounced(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(EmailIndex.ADDED_CHANNEL)
+        );
+        return container;
     }
 }
@@ -1,9 +1,15 @@
 package com.reon.auth_backend.configuration;
 
 import com.reon.auth_backend.jwt.JwtAuthenticationFilter;
+import com.reon.auth_backend.security.AccountOwnerAuthorizationManager;
+import com.reon.auth_backend.security.PasswordEncoders;
+import com.reon.auth_backend.security.PasswordHashingEngine;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
@@ -13,8 +19,8 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.HttpStatusEntryPoint;
@@ -23,6 +29,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
@@ -30,15 +37,22 @@ import java.util.List;
 @EnableMethodSecurity
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final Environment environment;
     @Value("${frontend.url}")
     private String frontendUrl;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, Environment environment) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.environment = environment;
     }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity security) throws Exception {
+        // Metrics are scraped without a token only when actuator runs on the separate management port,
+        // which is not reachable through the ingress
+        String[] publicActuator = ManagementPortType.get(environment) == ManagementPortType.DIFFERENT
+                ? new String[] {"/actuator/health", "/actuator/prometheus"}
+                : new String[] {"/actuator/health"};
         security
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))  // Custom CORS configuration
                 .csrf(AbstractHttpConfigurer::disable)
@@ -46,10 +60,21 @@ public class SecurityConfig {
                         .requestMatchers(
                                 "/api/auth/**", "/api/otp/**"
                         ).permitAll()
+                        // Account changes are limited to the account's owner, checked against the token's user id
+                        .requestMatchers(
+                                "/api/user/update/id/{id}", "/api/user/remove/id/{id}"
+                        ).access(new AccountOwnerAuthorizationManager())
                         .requestMatchers(
                                 "/api/user/**"
                         ).authenticated()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers(publicActuator).permitAll()
+                        .requestMatchers("/.well-known/jwks.json").permitAll()
+                        // The presented tokens are the credentials here; the controller answers 401 for inactive ones
+                        .requestMatchers("/api/introspect", "/api/introspect/batch").permitAll()
+                        // The error dispatch runs without the token filter; guarding it would turn every 403 into a 401
+                        .requestMatchers("/error").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .exceptionHandling(exception -> exception
@@ -62,15 +87,32 @@ public class SecurityConfig {
         return security.build();
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    // Hashing runs on its own bounded pool; threads = 0 sizes it to the number of cores
+    @Bean(destroyMethod = "shutdown")
+    public PasswordHashingEngine passwordEncoder(@Value("${password.hashing.algorithm:bcrypt}") String algorithm,
+                                                 @Value("${password.hashing.bcrypt.strength:10}") int bcryptStrength,
+                                                 @Value("${password.hashing.argon2.memory-kb:19456}") int argon2MemoryKb,
+                                                 @Value("${password.hashing.argon2.iterations:2}") int argon2Iterations,
+                                                 @Value("${password.hashing.argon2.parallelism:1}") int argon2Parallelism,
+                                                 @Value("${password.hashing.pbkdf2.iterations:600000}") int pbkdf2Iterations,
+                                                 @Value("${password.hashing.threads:0}") int threads,
+                                                 @Value("${password.hashing.queue-capacity:64}") int queueCapacity,
+                                                 @Value("${password.hashing.max-wait:2s}") Duration maxWait,
+                                                 MeterRegistry meterRegistry) {
+        PasswordEncoder encoder = PasswordEncoders.delegating(algorithm, bcryptStrength,
+                argon2MemoryKb, argon2Iterations, argon2Parallelism, pbkdf2Iterations);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new PasswordHashingEngine(encoder, poolSize, queueCapacity, maxWait, meterRegistry);
     }
 
+    // The password service re-hashes stored passwords whose algorithm or cost is out of date after a successful login
     @Bean
-    public DaoAuthenticationProvider authenticationProvider(UserDetailsService userDetailsService) {
+    public DaoAuthenticationProvider authenticationProvider(UserDetailsService userDetailsService,
+                                                            UserDetailsPasswordService userDetailsPasswordService,
+                                                            PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
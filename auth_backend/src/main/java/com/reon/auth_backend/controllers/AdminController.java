@@ -1,50 +1,108 @@
 package com.reon.auth_backend.controllers;
 
+import com.reon.auth_backend.dto.CursorPageDTO;
+import com.reon.auth_backend.dto.ExportFormat;
+import com.reon.auth_backend.dto.ImportReportDTO;
+import com.reon.auth_backend.dto.UserCursorQueryDTO;
+import com.reon.auth_backend.dto.UserField;
 import com.reon.auth_backend.dto.UserResponseDTO;
 import com.reon.auth_backend.model.User;
 import com.reon.auth_backend.service.AdminService;
+import com.reon.auth_backend.service.UserImportService;
+import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/admin")
 public class AdminController {
     private final Logger log = LoggerFactory.getLogger(AdminController.class);
     private final AdminService adminService;
+    private final UserImportService userImportService;
 
-    public AdminController(AdminService adminService) {
+    public AdminController(AdminService adminService, UserImportService userImportService) {
         this.adminService = adminService;
+        this.userImportService = userImportService;
     }
 
     @GetMapping("/users")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Page<UserResponseDTO>> fetchUsers(@RequestParam(defaultValue = "0") int page,
-                                                            @RequestParam(defaultValue = "5") int size){
-        log.info("Controller:: Fetching all users from pageNo={} pageSize={}", page, size);
-        Page<UserResponseDTO> allUsers = adminService.getUsers(page, size);
+    public ResponseEntity<Page<?>> fetchUsers(@RequestParam(defaultValue = "0") int page,
+                                              @RequestParam(defaultValue = "5") int size,
+                                              @RequestParam(required = false) String fields){
+        log.info("Controller:: Fetching all users from pageNo={} pageSize={} fields={}", page, size, fields);
+        List<UserField> selected = UserField.parse(fields);
+        Page<?> allUsers = selected == null ? adminService.getUsers(page, size) : adminService.getUserFields(page, size, selected);
         return ResponseEntity.ok().body(allUsers);
     }
 
+    // Keyset pagination: pass the returned nextCursor to fetch the following page
+    @GetMapping("/users/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPageDTO<?>> fetchUsersByCursor(@Valid UserCursorQueryDTO query,
+                                                               @RequestParam(required = false) String fields){
+        log.info("Controller:: Fetching users by cursor {} fields={}", query, fields);
+        List<UserField> selected = UserField.parse(fields);
+        CursorPageDTO<UserResponseDTO> users = adminService.getUsersByCursor(query);
+        if (selected == null) {
+            return ResponseEntity.ok().body(users);
+        }
+        return ResponseEntity.ok().body(new CursorPageDTO<>(
+                users.getContent().stream().map(user -> UserField.select(user, selected)).toList(),
+                users.getNextCursor(), users.isHasNext(), users.getTotalElements(), users.isTotalExact()));
+    }
+
+    // Streams the whole user base as NDJSON (default) or CSV without buffering it in memory
+    @GetMapping("/users/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "NDJSON") ExportFormat format){
+        log.info("Controller:: Exporting users as {}", format);
+        StreamingResponseBody body = outputStream -> adminService.exportUsers(format, outputStream);
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + format.extension() + "\"")
+                .body(body);
+    }
+
+    // Reads the request body as a stream of NDJSON (default) or CSV rows and reports every rejected row
+    @PostMapping("/users/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImportReportDTO> importUsers(@RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                                                       InputStream body) throws IOException {
+        log.info("Controller:: Importing users as {}", format);
+        ImportReportDTO report = userImportService.importUsers(format, body);
+        log.info("Controller:: Imported {} users, rejected {}", report.getCreated(), report.getRejected());
+        return ResponseEntity.ok().body(report);
+    }
+
     @GetMapping("/id/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<UserResponseDTO> fetchById(@PathVariable Long id){
+    public ResponseEntity<Object> fetchById(@PathVariable Long id, @RequestParam(required = false) String fields){
         log.info("Controller:: Fetching user with id: {}", id);
+        List<UserField> selected = UserField.parse(fields);
         UserResponseDTO user = adminService.fetchUser(id);
         log.info("Controller:: Fetched user with id: {}", id);
-        return ResponseEntity.ok().body(user);
+        return ResponseEntity.ok().body(selected == null ? user : UserField.select(user, selected));
     }
 
     @GetMapping("/email/{email}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<UserResponseDTO> fetchByEmail(@PathVariable String email){
+    public ResponseEntity<Object> fetchByEmail(@PathVariable String email, @RequestParam(required = false) String fields){
         log.info("Controller:: Fetching user with email: {}", email);
+        List<UserField> selected = UserField.parse(fields);
         UserResponseDTO user = adminService.fetchUserByEmail(email);
         log.info("Controller:: Fetched user with email: {}", email);
-        return ResponseEntity.ok().body(user);
+        return ResponseEntity.ok().body(selected == null ? user : UserField.select(user, selected));
     }
 
     @PostMapping("/{id}/promote-to-admin")
@@ -55,4 +113,13 @@ public class AdminController {
         log.info("Controller :: User has been promoted");
         return ResponseEntity.ok().body(updateUser);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/{id}/logout")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> forceLogout(@PathVariable Long id){
+        log.info("Controller:: Force logout of user with id: {}", id);
+        adminService.forceLogout(id);
+        log.info("Controller:: Revoked all tokens of user with id: {}", id);
+        return ResponseEntity.ok().body("User logged out from all sessions");
+    }
+}
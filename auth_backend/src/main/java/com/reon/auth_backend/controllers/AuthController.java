@@ -4,8 +4,13 @@ import com.reon.auth_backend.dto.UserLoginDTO;
 import com.reon.auth_backend.dto.UserRequestDTO;
 import com.reon.auth_backend.dto.UserResponseDTO;
 import com.reon.auth_backend.jwt.JwtResponse;
+import com.reon.auth_backend.jwt.JwtUtils;
+import com.reon.auth_backend.jwt.TokenRevocationService;
 import com.reon.auth_backend.service.UserService;
+import com.reon.auth_backend.throttle.RequestThrottle;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -25,9 +30,16 @@ public class AuthController {
 
     private final Logger log = LoggerFactory.getLogger(AuthController.class);
     private final UserService userService;
+    private final RequestThrottle requestThrottle;
+    private final JwtUtils jwtUtils;
+    private final TokenRevocationService tokenRevocationService;
 
-    public AuthController(UserService userService) {
+    public AuthController(UserService userService, RequestThrottle requestThrottle, JwtUtils jwtUtils,
+                          TokenRevocationService tokenRevocationService) {
         this.userService = userService;
+        this.requestThrottle = requestThrottle;
+        this.jwtUtils = jwtUtils;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @PostMapping("/register")
@@ -39,8 +51,10 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody UserLoginDTO userLoginDTO, HttpServletResponse response) {
+    public ResponseEntity<?> login(@Valid @RequestBody UserLoginDTO userLoginDTO, HttpServletRequest request,
+                                   HttpServletResponse response) {
         log.info("Controller:: Login user {}", userLoginDTO);
+        requestThrottle.check(RequestThrottle.Action.LOGIN, userLoginDTO.getEmail(), request.getRemoteAddr());
         JwtResponse jwtToken = userService.authenticateUser(userLoginDTO);
 
         try {
@@ -64,8 +78,10 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpServletResponse response) {
+    public ResponseEntity<?> logout(HttpServletRequest request, HttpServletResponse response) {
         try {
+            revokePresentedToken(request);
+
             Cookie cookie = new Cookie("JWT", null);
             cookie.setHttpOnly(true);
             cookie.setSecure(false);
@@ -81,4 +97,20 @@ public class AuthController {
             throw new RuntimeException(e);
         }
     }
+
+    // Clearing the cookie alone leaves a copied token usable, so its id goes on the denylist until it expires
+    private void revokePresentedToken(HttpServletRequest request) {
+        String jwt = jwtUtils.getJwtFromHeader(request);
+        if (jwt == null) {
+            return;
+        }
+        Claims claims;
+        try {
+            claims = jwtUtils.parseClaims(jwt);
+        } catch (RuntimeException e) {
+            log.info("Controller:: Logout with an invalid or expired token, nothing to revoke");
+            return;
+        }
+        tokenRevocationService.revokeToken(claims.getId(), claims.getExpiration());
+    }
 }
@@ -0,0 +1,59 @@
+package com.reon.auth_backend.controllers;
+
+import com.reon.auth_backend.dto.IntrospectionBatchRequestDTO;
+import com.reon.auth_backend.dto.IntrospectionDTO;
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.service.TokenIntrospectionService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Token introspection for gateways and sidecars. Handlers return {@link Mono}s, so the request is
+ * completed asynchronously and no servlet thread waits on Redis. The JWT filter skips these paths.
+ */
+@RestController
+@RequestMapping("/api/introspect")
+public class IntrospectionController {
+    public static final String USER_ID_HEADER = "X-Auth-User-Id";
+    public static final String USER_EMAIL_HEADER = "X-Auth-User-Email";
+    public static final String USER_ROLES_HEADER = "X-Auth-User-Roles";
+
+    private final Logger log = LoggerFactory.getLogger(IntrospectionController.class);
+    private final TokenIntrospectionService tokenIntrospectionService;
+
+    public IntrospectionController(TokenIntrospectionService tokenIntrospectionService) {
+        this.tokenIntrospectionService = tokenIntrospectionService;
+    }
+
+    // Subrequest check (e.g. nginx auth_request): 204 with identity headers for an active bearer token, else 401
+    @GetMapping
+    public Mono<ResponseEntity<Void>> introspect(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String token = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+        return tokenIntrospectionService.introspect(token).map(result -> {
+            if (!result.isActive()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            return ResponseEntity.noContent()
+                    .header(USER_ID_HEADER, String.valueOf(result.getUserId()))
+                    .header(USER_EMAIL_HEADER, result.getEmail())
+                    .header(USER_ROLES_HEADER, result.getRoles().stream().map(User.Role::name).sorted()
+                            .collect(Collectors.joining(",")))
+                    .build();
+        });
+    }
+
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<List<IntrospectionDTO>>> introspectBatch(@Valid @RequestBody IntrospectionBatchRequestDTO request) {
+        log.debug("Controller:: Introspecting {} tokens", request.getTokens().size());
+        return tokenIntrospectionService.introspectAll(request.getTokens()).map(results -> ResponseEntity.ok().body(results));
+    }
+}
@@ -0,0 +1,38 @@
+package com.reon.auth_backend.controllers;
+
+import com.reon.auth_backend.jwt.SigningKeyRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+
+/**
+ * Publishes the public signing keys so other services verify tokens locally. The document changes only
+ * on rotation, and new keys are listed well before they sign, so clients may cache it for the full max-age.
+ */
+@RestController
+public class JwksController {
+    private final SigningKeyRing keyRing;
+    private final CacheControl cacheControl;
+
+    public JwksController(SigningKeyRing keyRing,
+                          @Value("${jwt.jwks.max-age:1h}") Duration maxAge,
+                          @Value("${jwt.jwks.stale-while-revalidate:10m}") Duration staleWhileRevalidate) {
+        this.keyRing = keyRing;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic().staleWhileRevalidate(staleWhileRevalidate);
+    }
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> jwks(WebRequest request) {
+        String etag = keyRing.jwksEtag();
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(304).cacheControl(cacheControl).eTag(etag).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).eTag(etag).body(keyRing.jwks());
+    }
+}
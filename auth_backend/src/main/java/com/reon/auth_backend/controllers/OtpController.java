@@ -4,6 +4,8 @@ import com.reon.auth_backend.dto.AccountVerificationDTO;
 import com.reon.auth_backend.dto.ResetPasswordDTO;
 import com.reon.auth_backend.dto.VerifyOTPDTO;
 import com.reon.auth_backend.service.OtpService;
+import com.reon.auth_backend.throttle.RequestThrottle;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,16 +17,20 @@ import org.springframework.web.bind.annotation.*;
 public class OtpController {
     private final Logger log = LoggerFactory.getLogger(OtpController.class);
     private final OtpService otpService;
+    private final RequestThrottle requestThrottle;
 
-    public OtpController(OtpService otpService) {
+    public OtpController(OtpService otpService, RequestThrottle requestThrottle) {
         this.otpService = otpService;
+        this.requestThrottle = requestThrottle;
     }
 
     // Account Verification -> Registration
     @PostMapping("/verify-account")
     public ResponseEntity<String> verifyAccount(@RequestParam String email,
-                                                @Valid @RequestBody AccountVerificationDTO accountVerificationDTO) {
+                                                @Valid @RequestBody AccountVerificationDTO accountVerificationDTO,
+                                                HttpServletRequest request) {
         log.info("Controller:: Verifying account {}", accountVerificationDTO);
+        requestThrottle.check(RequestThrottle.Action.OTP_VERIFY, email, request.getRemoteAddr());
         otpService.verifyAccount(email, accountVerificationDTO.getOtp());
         log.info("Controller:: Verified account {}", accountVerificationDTO);
         return ResponseEntity.ok().body("Account verified");
@@ -32,8 +38,9 @@ public class OtpController {
 
     // Resend Account Verification OTP -> Registration
     @PostMapping("/resend-otp")
-    public ResponseEntity<String> resendVerificationOTP(@RequestParam String email){
+    public ResponseEntity<String> resendVerificationOTP(@RequestParam String email, HttpServletRequest request){
         log.info("Controller:: Resending otp {}", email);
+        requestThrottle.check(RequestThrottle.Action.OTP_SEND, email, request.getRemoteAddr());
         otpService.sendVerificationEmail(email);
         log.info("Controller:: OTP sent {}", email);
         return ResponseEntity.ok().body("OTP sent");
@@ -41,8 +48,9 @@ public class OtpController {
 
     // Reset Password -> before login
     @PostMapping("/reset-password")
-    public ResponseEntity<String> sendResetPasswordOTP(@RequestParam String email){
+    public ResponseEntity<String> sendResetPasswordOTP(@RequestParam String email, HttpServletRequest request){
         log.info("Controller:: Sending reset password otp {}", email);
+        requestThrottle.check(RequestThrottle.Action.OTP_SEND, email, request.getRemoteAddr());
         otpService.sendResetPasswordOTP(email);
         log.info("Controller:: Reset Password OTP sent {}", email);
         return ResponseEntity.ok().body("OTP sent");
@@ -50,8 +58,9 @@ public class OtpController {
 
     // Opt confirmation -> step before resetting password for login
     @PostMapping("/verify-reset-otp")
-    public ResponseEntity<String> verifyResetOTP(@Valid @RequestBody VerifyOTPDTO verifyOTPDTO){
+    public ResponseEntity<String> verifyResetOTP(@Valid @RequestBody VerifyOTPDTO verifyOTPDTO, HttpServletRequest request){
         log.info("Controller:: Verifying reset otp {}", verifyOTPDTO);
+        requestThrottle.check(RequestThrottle.Action.OTP_VERIFY, verifyOTPDTO.getEmail(), request.getRemoteAddr());
         otpService.verifyResetPasswordOTP(verifyOTPDTO.getEmail(), verifyOTPDTO.getOtp());
         log.info("Controller:: Reset Password Verification success {}", verifyOTPDTO);
         return ResponseEntity.ok().body("OTP verified");
@@ -59,8 +68,9 @@ public class OtpController {
 
     // Actual password reset endpoint
     @PostMapping("/new-password")
-    public ResponseEntity<String> resetPassword(@Valid @RequestBody ResetPasswordDTO resetPasswordDTO){
+    public ResponseEntity<String> resetPassword(@Valid @RequestBody ResetPasswordDTO resetPasswordDTO, HttpServletRequest request){
         log.info("Controller:: Resetting password {}", resetPasswordDTO);
+        requestThrottle.check(RequestThrottle.Action.OTP_VERIFY, resetPasswordDTO.getEmail(), request.getRemoteAddr());
         otpService.resetPassword(resetPasswordDTO.getEmail(), resetPasswordDTO.getOtp(), resetPasswordDTO.getNewPassword());
         log.info("Controller:: Password reset success {}", resetPasswordDTO);
         return ResponseEntity.ok().body("Password reset success");
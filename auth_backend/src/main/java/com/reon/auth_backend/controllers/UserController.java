@@ -7,7 +7,6 @@ import com.reon.auth_backend.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -20,8 +19,8 @@ public class UserController {
         this.userService = userService;
     }
 
+    // Owner-only, enforced in SecurityConfig
     @PutMapping("/update/id/{id}")
-    @PreAuthorize("@userServiceImpl.isUserLoggedIn(#id)")
     public ResponseEntity<UserResponseDTO> updateUser(@PathVariable Long id, @RequestBody UserRequestDTO userRequestDTO) {
         log.info("Controller:: Updating user {}", userRequestDTO);
         UserResponseDTO update = userService.updateUser(id, userRequestDTO);
@@ -30,7 +29,6 @@ public class UserController {
     }
 
     @DeleteMapping("/remove/id/{id}")
-    @PreAuthorize("@userServiceImpl.isUserLoggedIn(#id)")
     public ResponseEntity<UserResponseDTO> removeUser(@PathVariable Long id) {
         log.info("Controller:: Removing user {}", id);
         userService.deleteUser(id);
@@ -0,0 +1,19 @@
+package com.reon.auth_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportReportDTO {
+    private long rows;
+    private long created;
+    private long rejected;
+    private List<ImportRowErrorDTO> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+}
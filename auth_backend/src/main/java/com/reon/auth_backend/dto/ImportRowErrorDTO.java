@@ -0,0 +1,14 @@
+package com.reon.auth_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportRowErrorDTO {
+    private long row;
+    private String email;
+    private String reason;
+}
@@ -0,0 +1,18 @@
+package com.reon.auth_backend.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IntrospectionBatchRequestDTO {
+    @NotEmpty(message = "At least one token is required")
+    @Size(max = 100, message = "At most 100 tokens per request")
+    private List<String> tokens;
+}
@@ -0,0 +1,25 @@
+package com.reon.auth_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.reon.auth_backend.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+// Result for one token; inactive tokens carry no other field
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IntrospectionDTO {
+    private boolean active;
+    private Long userId;
+    private String email;
+    private Set<User.Role> roles;
+    // Expiry in epoch seconds
+    private Long exp;
+
+    public static final IntrospectionDTO INACTIVE = new IntrospectionDTO(false, null, null, null, null);
+}
@@ -0,0 +1,58 @@
+package com.reon.auth_backend.dto;
+
+import com.reon.auth_backend.exceptions.InvalidCursorException;
+import com.reon.auth_backend.model.User;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last row returned by a keyset page. Encoded as an opaque URL-safe string that
+ * also pins the sort order, so a cursor cannot be replayed against a different ordering.
+ */
+public record UserCursor(SortField sort, Sort.Direction direction, LocalDateTime createdAt, Long id) {
+
+    public static UserCursor of(User user, SortField sort, Sort.Direction direction) {
+        return new UserCursor(sort, direction, user.getCreatedAt(), user.getId());
+    }
+
+    public String encode() {
+        String raw = sort + "|" + direction + "|" + (createdAt != null ? createdAt : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UserCursor decode(String cursor, SortField sort, Sort.Direction direction) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+            if (SortField.valueOf(parts[0]) != sort || Sort.Direction.valueOf(parts[1]) != direction) {
+                throw new InvalidCursorException("Cursor was issued for a different sort order");
+            }
+            LocalDateTime createdAt = parts[2].isEmpty() ? null : LocalDateTime.parse(parts[2]);
+            if (sort == SortField.CREATED_AT && createdAt == null) {
+                throw new InvalidCursorException("Cursor is missing its createdAt position");
+            }
+            return new UserCursor(sort, direction, createdAt, Long.parseLong(parts[3]));
+        } catch (RuntimeException e) {
+            if (e instanceof InvalidCursorException) {
+                throw e;
+            }
+            throw new InvalidCursorException("Malformed cursor: " + cursor);
+        }
+    }
+
+    public enum SortField {
+        ID("id"), CREATED_AT("createdAt");
+
+        private final String property;
+
+        SortField(String property) {
+            this.property = property;
+        }
+
+        public String property() {
+            return property;
+        }
+    }
+}
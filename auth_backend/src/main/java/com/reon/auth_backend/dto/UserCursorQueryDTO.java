@@ -0,0 +1,29 @@
+package com.reon.auth_backend.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Sort;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserCursorQueryDTO {
+    private String cursor;
+
+    @Min(value = 1, message = "Page size must be at least 1")
+    @Max(value = 100, message = "Page size must be at most 100")
+    private int size = 20;
+
+    private UserCursor.SortField sort = UserCursor.SortField.CREATED_AT;
+    private Sort.Direction direction = Sort.Direction.DESC;
+
+    // Optional filters
+    private Boolean emailVerified;
+    private Boolean accountEnabled;
+
+    // Counting every matching row is opt-in; by default a cached count is returned
+    private boolean exactCount;
+}
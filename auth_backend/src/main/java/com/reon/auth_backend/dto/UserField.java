@@ -0,0 +1,65 @@
+package com.reon.auth_backend.dto;
+
+import com.reon.auth_backend.exceptions.InvalidFieldsException;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Properties of {@link UserResponseDTO} a client can ask for with {@code fields=}. The property name is
+ * also the entity attribute, so a sparse list query selects only the requested columns.
+ */
+public enum UserField {
+    ID("id", UserResponseDTO::getId),
+    NAME("name", UserResponseDTO::getName),
+    EMAIL("email", UserResponseDTO::getEmail),
+    EMAIL_VERIFIED("emailVerified", UserResponseDTO::isEmailVerified),
+    ACCOUNT_ENABLED("accountEnabled", UserResponseDTO::isAccountEnabled),
+    ROLES("roles", UserResponseDTO::getRoles),
+    CREATED_AT("createdAt", UserResponseDTO::getCreatedAt),
+    UPDATED_AT("updatedAt", UserResponseDTO::getUpdatedAt);
+
+    private static final Map<String, UserField> BY_PROPERTY = new HashMap<>();
+
+    static {
+        for (UserField field : values()) {
+            BY_PROPERTY.put(field.property, field);
+        }
+    }
+
+    private final String property;
+    private final Function<UserResponseDTO, Object> getter;
+
+    UserField(String property, Function<UserResponseDTO, Object> getter) {
+        this.property = property;
+        this.getter = getter;
+    }
+
+    public String property() {
+        return property;
+    }
+
+    // Comma-separated property names, kept in request order; null or blank means every field
+    public static List<UserField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<UserField> selected = new LinkedHashSet<>();
+        for (String name : fields.split(",")) {
+            UserField field = BY_PROPERTY.get(name.trim());
+            if (field == null) {
+                throw new InvalidFieldsException("Unknown field: " + name.trim());
+            }
+            selected.add(field);
+        }
+        return List.copyOf(selected);
+    }
+
+    public static Map<String, Object> select(UserResponseDTO user, List<UserField> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (UserField field : fields) {
+            values.put(field.property, field.getter.apply(user));
+        }
+        return values;
+    }
+}
@@ -2,6 +2,7 @@ package com.reon.auth_backend.exceptions;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -51,6 +52,51 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errors, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, String>> handleException(InvalidCursorException exception) {
+        logger.info(exception.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("cursor", "Invalid cursor. Start again from the first page.");
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ResponseEntity<Map<String, String>> handleException(InvalidFieldsException exception) {
+        logger.info(exception.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("fields", exception.getMessage());
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidImportFileException.class)
+    public ResponseEntity<Map<String, String>> handleException(InvalidImportFileException exception) {
+        logger.info(exception.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("import", exception.getMessage());
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+
+    // Sent when the password hashing pool is saturated; clients should back off and retry
+    @ExceptionHandler(HashingOverloadedException.class)
+    public ResponseEntity<Map<String, String>> handleException(HashingOverloadedException exception) {
+        logger.warn(exception.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("overloaded", "Server is busy. Please retry shortly.");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errors);
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, String>> handleException(TooManyRequestsException exception) {
+        logger.info(exception.getMessage());
+        Map<String, String> errors = new HashMap<>();
+        errors.put("throttled", "Too many attempts. Please try again later.");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(errors);
+    }
+
     // OTP based exception handlers
     @ExceptionHandler(InvalidOTPException.class)
     public ResponseEntity<Map<String, String>> handleException(InvalidOTPException exception) {
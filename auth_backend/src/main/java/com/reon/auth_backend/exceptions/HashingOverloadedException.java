@@ -0,0 +1,7 @@
+package com.reon.auth_backend.exceptions;
+
+public class HashingOverloadedException extends RuntimeException {
+    public HashingOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.reon.auth_backend.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.reon.auth_backend.exceptions;
+
+public class InvalidFieldsException extends RuntimeException {
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.reon.auth_backend.exceptions;
+
+public class InvalidImportFileException extends RuntimeException {
+    public InvalidImportFileException(String message) {
+        super(message);
+    }
+}
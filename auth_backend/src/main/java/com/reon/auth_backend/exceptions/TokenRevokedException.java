@@ -0,0 +1,7 @@
+package com.reon.auth_backend.exceptions;
+
+public class TokenRevokedException extends RuntimeException {
+    public TokenRevokedException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,15 @@
 package com.reon.auth_backend.jwt;
 
+import com.reon.auth_backend.exceptions.TokenRevokedException;
 import com.reon.auth_backend.service.impl.CustomUserDetailService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -8,6 +17,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,16 +27,41 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    private static final String INTROSPECTION_PATH = "/api/introspect";
+
     private final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     private final JwtUtils jwtUtils;
     private final CustomUserDetailService customUserDetailService;
+    private final TokenPrincipalCache tokenPrincipalCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final boolean statelessPrincipal;
+    private final MeterRegistry meterRegistry;
+    private final Timer verifySuccessTimer;
+    private final Timer verifyFailureTimer;
+    private final Counter principalCacheHits;
+    private final Counter principalCacheMisses;
 
-    public JwtAuthenticationFilter(JwtUtils jwtUtils, CustomUserDetailService customUserDetailService) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, CustomUserDetailService customUserDetailService,
+                                   TokenPrincipalCache tokenPrincipalCache, TokenRevocationService tokenRevocationService,
+                                   @Value("${jwt.stateless-principal:false}") boolean statelessPrincipal,
+                                   MeterRegistry meterRegistry) {
         this.jwtUtils = jwtUtils;
         this.customUserDetailService = customUserDetailService;
+        this.tokenPrincipalCache = tokenPrincipalCache;
+        this.tokenRevocationService = tokenRevocationService;
+        this.statelessPrincipal = statelessPrincipal;
+        this.meterRegistry = meterRegistry;
+        this.verifySuccessTimer = Timer.builder("auth.jwt.verify").tag("outcome", "success")
+                .publishPercentileHistogram().register(meterRegistry);
+        // Prometheus needs every series of a meter to have the same type, so both outcomes publish histograms
+        this.verifyFailureTimer = Timer.builder("auth.jwt.verify").tag("outcome", "failure")
+                .publishPercentileHistogram().register(meterRegistry);
+        this.principalCacheHits = Counter.builder("auth.jwt.principal.cache").tag("result", "hit").register(meterRegistry);
+        this.principalCacheMisses = Counter.builder("auth.jwt.principal.cache").tag("result", "miss").register(meterRegistry);
     }
 
     @Override
@@ -34,9 +69,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = jwtUtils.getJwtFromHeader(request);
-            if (jwt != null && jwtUtils.validateToken(jwt)) {
-                String username = jwtUtils.getUsernameFromJwtToken(jwt);
-                UserDetails userDetails = customUserDetailService.loadUserByUsername(username);
+            if (jwt != null) {
+                // Repeat requests with an already verified token skip signature checks and the user lookup
+                TokenPrincipalCache.CachedPrincipal cached = tokenPrincipalCache.get(jwt);
+                if (cached != null) {
+                    principalCacheHits.increment();
+                } else {
+                    principalCacheMisses.increment();
+                    long generation = tokenPrincipalCache.generation();
+                    Claims claims = verify(jwt);
+                    UserDetails principal = statelessPrincipal ? jwtUtils.toPrincipal(claims) : null;
+                    if (principal == null) {
+                        principal = customUserDetailService.loadPrincipal(claims.getSubject());
+                    }
+                    cached = tokenPrincipalCache.put(jwt, principal, claims, generation);
+                }
+                UserDetails userDetails = cached.principal();
+                String username = userDetails != null ? userDetails.getUsername() : null;
+                // Checked on cache hits too, so a revocation applies from the next request on every node
+                if (tokenRevocationService.isRevoked(cached.tokenId(), username, cached.issuedAtMillis())) {
+                    throw new TokenRevokedException("Token has been revoked");
+                }
                 if (username != null){
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
@@ -46,6 +99,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 }
             }
         } catch (RuntimeException e) {
+            meterRegistry.counter("auth.jwt.failures", "reason", failureReason(e)).increment();
             log.warn("JWT expired or invalid: {}", e.getMessage());
             deleteJwtCookie(response);
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -54,6 +108,51 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Introspection checks the presented token itself, without blocking lookups or a security context
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(INTROSPECTION_PATH, request.getContextPath().length());
+    }
+
+    private Claims verify(String jwt) {
+        long start = System.nanoTime();
+        try {
+            Claims claims = jwtUtils.parseClaims(jwt);
+            verifySuccessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
+        } catch (RuntimeException e) {
+            verifyFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    // JwtUtils wraps parser errors, so the reason is read from the cause
+    private static String failureReason(RuntimeException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof ExpiredJwtException) {
+            return "expired";
+        }
+        if (cause instanceof SignatureException) {
+            return "signature";
+        }
+        if (cause instanceof MalformedJwtException) {
+            return "malformed";
+        }
+        if (cause instanceof UnsupportedJwtException) {
+            return "unsupported";
+        }
+        if (cause instanceof TokenRevokedException) {
+            return "revoked";
+        }
+        if (cause instanceof UsernameNotFoundException) {
+            return "user_not_found";
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return "empty";
+        }
+        return "other";
+    }
+
     private void deleteJwtCookie(HttpServletResponse response) {
         Cookie cookie = new Cookie("JWT", null);
         cookie.setHttpOnly(true);
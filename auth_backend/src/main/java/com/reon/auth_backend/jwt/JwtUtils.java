@@ -1,28 +1,36 @@
 package com.reon.auth_backend.jwt;
 
 import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.model.UserPrincipal;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.security.Key;
 import java.util.Date;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
 @Component
 public class JwtUtils {
-    @Value("${token.expiration.time}")
-    private long tokenExpirationTime;
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "rol";
+    // iat only has second precision; revoking a user compares issue times to the millisecond
+    public static final String CLAIM_ISSUED_AT_MILLIS = "iat_ms";
 
-    @Value("${jwt.secret-key}")
-    private String jwtSecret;
+    private final long tokenExpirationTime;
+    private final SigningKeyRing keyRing;
+    // The parser is immutable and thread-safe; the verification key is looked up by kid per token
+    private final JwtParser parser;
+
+    public JwtUtils(@Value("${token.expiration.time}") long tokenExpirationTime, SigningKeyRing keyRing) {
+        this.tokenExpirationTime = tokenExpirationTime;
+        this.keyRing = keyRing;
+        this.parser = Jwts.parser().keyLocator(keyRing).build();
+    }
 
     public String getJwtFromHeader(HttpServletRequest request) {
         String authHeader = request.getHeader("Authorization");
@@ -40,40 +48,56 @@ public class JwtUtils {
     }
 
     public String generateToken(User user) {
-        String email = user.getEmail();
-        String roles = user.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.joining(", "));
+        long now = System.currentTimeMillis();
+        SigningKey signingKey = keyRing.signingKey();
         return Jwts.builder()
-                .subject(email)
-                .claim("roles", roles)
-                .issuedAt(new Date())
-                .expiration(new Date((new Date().getTime() + tokenExpirationTime)))
-                .signWith(key())
+                .header().keyId(signingKey.kid()).and()
+                .id(UUID.randomUUID().toString())
+                .subject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_ROLES, User.Role.toMask(user.getRoles()))
+                .issuedAt(new Date(now))
+                .claim(CLAIM_ISSUED_AT_MILLIS, now)
+                .expiration(new Date(now + tokenExpirationTime))
+                .signWith(signingKey.privateKey())
                 .compact();
     }
 
-    private Key key(){
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    // Verifies the signature and expiry once and hands back every claim of the token
+    public Claims parseClaims(String token){
+        try {
+            return parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public String getUsernameFromJwtToken(String token){
-        return Jwts.parser()
-                .verifyWith((SecretKey) key())
-                .build().parseSignedClaims(token)
-                .getPayload().getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public boolean validateToken(String token){
-        try {
-            Jwts.parser()
-                    .verifyWith((SecretKey) key())
-                    .build().parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            throw new RuntimeException(e);
-        } catch (Exception e){
-            throw new RuntimeException(e);
+        parseClaims(token);
+        return true;
+    }
+
+    // Tokens from before iat_ms fall back to the start of their iat second; -1 if neither is present
+    public static long issuedAtMillis(Claims claims) {
+        Number millis = claims.get(CLAIM_ISSUED_AT_MILLIS, Number.class);
+        if (millis != null) {
+            return millis.longValue();
+        }
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt != null ? issuedAt.getTime() : -1;
+    }
+
+    // Principal built purely from claims; null for tokens issued before the compact claims existed
+    public UserPrincipal toPrincipal(Claims claims){
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        Integer roles = claims.get(CLAIM_ROLES, Integer.class);
+        if (userId == null || roles == null || claims.getSubject() == null) {
+            return null;
         }
+        return new UserPrincipal(userId.longValue(), claims.getSubject(), User.Role.fromMask(roles), true);
     }
 }
@@ -0,0 +1,74 @@
+package com.reon.auth_backend.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * One asymmetric token signing key. A key signs from {@code activatesAt} until the next key activates,
+ * and keeps verifying until {@code expiresAt}, which is only set once a newer key has been created.
+ */
+public record SigningKey(String kid, String algorithm, PrivateKey privateKey, PublicKey publicKey,
+                         Instant activatesAt, Instant expiresAt) {
+    public static final String ES256 = "ES256";
+    public static final String EDDSA = "EdDSA";
+
+    public static SigningKey generate(String algorithm, Instant activatesAt) {
+        KeyPair pair = switch (algorithm) {
+            case ES256 -> Jwts.SIG.ES256.keyPair().build();
+            case EDDSA -> Jwks.CRV.Ed25519.keyPair().build();
+            default -> throw new IllegalArgumentException("Unsupported signing algorithm: " + algorithm);
+        };
+        return new SigningKey(UUID.randomUUID().toString(), algorithm, pair.getPrivate(), pair.getPublic(),
+                activatesAt, null);
+    }
+
+    public SigningKey expiringAt(Instant expiresAt) {
+        return new SigningKey(kid, algorithm, privateKey, publicKey, activatesAt, expiresAt);
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && expiresAt.isBefore(now);
+    }
+
+    public PublicJwk<?> toJwk() {
+        return Jwks.builder().key(publicKey).id(kid).algorithm(algorithm).publicKeyUse("sig").build();
+    }
+
+    public Stored toStored(SigningKeyCipher cipher) {
+        return new Stored(kid, algorithm, publicKey.getAlgorithm(),
+                cipher.encrypt(kid, privateKey.getEncoded()), Base64.getEncoder().encodeToString(publicKey.getEncoded()),
+                activatesAt.toEpochMilli(), expiresAt != null ? expiresAt.toEpochMilli() : null);
+    }
+
+    public static SigningKey fromStored(Stored stored, SigningKeyCipher cipher) {
+        try {
+            KeyFactory factory = KeyFactory.getInstance(stored.keyAlgorithm());
+            PrivateKey privateKey = factory.generatePrivate(
+                    new PKCS8EncodedKeySpec(cipher.decrypt(stored.kid(), stored.privateKey())));
+            PublicKey publicKey = factory.generatePublic(
+                    new X509EncodedKeySpec(Base64.getDecoder().decode(stored.publicKey())));
+            return new SigningKey(stored.kid(), stored.algorithm(), privateKey, publicKey,
+                    Instant.ofEpochMilli(stored.activatesAt()),
+                    stored.expiresAt() != null ? Instant.ofEpochMilli(stored.expiresAt()) : null);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unreadable signing key " + stored.kid(), e);
+        }
+    }
+
+    // Shape kept in Redis: encrypted PKCS#8 and plain X.509 encodings, timestamps in epoch millis
+    public record Stored(String kid, String algorithm, String keyAlgorithm, String privateKey, String publicKey,
+                         long activatesAt, Long expiresAt) {
+    }
+}
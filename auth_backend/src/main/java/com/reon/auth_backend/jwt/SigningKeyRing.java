@@ -0,0 +1,99 @@
+package com.reon.auth_backend.jwt;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * The node's view of the signing keys. Verification resolves the token's {@code kid} against an
+ * immutable map of already decoded public keys, so a rotation never adds parsing work to a request.
+ * The JWKS document and its ETag are rendered once per change of the ring.
+ * <p>
+ * Tokens without a {@code kid} were signed with the shared HMAC secret before asymmetric keys were
+ * introduced; they are accepted while {@code jwt.secret-key} is still configured.
+ */
+@Component
+public class SigningKeyRing extends LocatorAdapter<Key> {
+    private final SecretKey legacyKey;
+    private volatile State state = new State(Map.of(), List.of(), "{\"keys\":[]}", "\"empty\"");
+
+    public SigningKeyRing(@Value("${jwt.secret-key:}") String legacySecret) {
+        this.legacyKey = legacySecret.isBlank() ? null : Keys.hmacShaKeyFor(Decoders.BASE64.decode(legacySecret));
+    }
+
+    public void replace(Collection<SigningKey> keys) {
+        Map<String, SigningKey> byKid = new HashMap<>();
+        keys.forEach(key -> byKid.put(key.kid(), key));
+        List<SigningKey> newestFirst = new ArrayList<>(keys);
+        newestFirst.sort(Comparator.comparing(SigningKey::activatesAt).reversed());
+        String jwks = newestFirst.stream()
+                .map(key -> Jwks.json(key.toJwk()))
+                .collect(Collectors.joining(",", "{\"keys\":[", "]}"));
+        state = new State(Map.copyOf(byKid), List.copyOf(newestFirst), jwks, etag(jwks));
+    }
+
+    // Newest key whose activation time has passed; pre-published keys only verify until then
+    public SigningKey signingKey() {
+        Instant now = Instant.now();
+        for (SigningKey key : state.newestFirst()) {
+            if (!key.activatesAt().isAfter(now)) {
+                return key;
+            }
+        }
+        throw new IllegalStateException("No active signing key");
+    }
+
+    public List<SigningKey> keys() {
+        return state.newestFirst();
+    }
+
+    public String jwks() {
+        return state.jwks();
+    }
+
+    public String jwksEtag() {
+        return state.etag();
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+        if (kid == null) {
+            if (legacyKey != null && header.getAlgorithm() != null && header.getAlgorithm().startsWith("HS")) {
+                return legacyKey;
+            }
+            throw new UnsupportedJwtException("Token has no key id");
+        }
+        SigningKey key = state.byKid().get(kid);
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown signing key " + kid);
+        }
+        return key.publicKey();
+    }
+
+    private static String etag(String jwks) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(jwks.getBytes(StandardCharsets.UTF_8));
+            return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record State(Map<String, SigningKey> byKid, List<SigningKey> newestFirst, String jwks, String etag) {
+    }
+}
@@ -0,0 +1,203 @@
+package com.reon.auth_backend.jwt;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Keeps the shared signing keys in the {@code jwt:signing-keys} Redis hash and rotates them.
+ * <p>
+ * A new key is created {@code publish-ahead} before the current one reaches {@code rotation-interval}, and
+ * is listed in the JWKS from then on but only signs once it activates, so verifiers with a cached key set
+ * already hold it. Superseded keys keep verifying for one token lifetime after the new key activates and
+ * are then dropped. Only one node rotates at a time; the others reload on {@link #CHANGED_CHANNEL}.
+ * Private keys are stored encrypted by {@link SigningKeyCipher}.
+ * <p>
+ * On a fresh Redis only the node holding the lock creates the first key; nodes starting alongside it wait
+ * up to {@code jwt.keys.startup-wait} for that key rather than failing their startup. The wait exceeds the
+ * lock TTL, so a holder that died mid-rotation is taken over.
+ */
+@Component
+public class SigningKeyRotation {
+    public static final String CHANGED_CHANNEL = "jwt:signing-keys:changed";
+    private static final String KEYS_KEY = "jwt:signing-keys";
+    private static final String LOCK_KEY = "jwt:signing-keys:lock";
+    private static final Duration LOCK_TTL = Duration.ofSeconds(30);
+    private static final Duration STARTUP_POLL_INTERVAL = Duration.ofMillis(500);
+    // Only the holder's own token releases the lock, not one that expired and was taken by another node
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final Logger log = LoggerFactory.getLogger(SigningKeyRotation.class);
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final SigningKeyRing keyRing;
+    private final SigningKeyCipher cipher;
+    private final String algorithm;
+    private final Duration rotationInterval;
+    private final Duration publishAhead;
+    private final Duration tokenLifetime;
+    private final Duration startupWait;
+
+    public SigningKeyRotation(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, SigningKeyRing keyRing,
+                              SigningKeyCipher cipher,
+                              @Value("${jwt.signing.algorithm:ES256}") String algorithm,
+                              @Value("${jwt.keys.rotation-interval:30d}") Duration rotationInterval,
+                              @Value("${jwt.keys.publish-ahead:2h}") Duration publishAhead,
+                              @Value("${jwt.jwks.max-age:1h}") Duration jwksMaxAge,
+                              @Value("${jwt.keys.startup-wait:60s}") Duration startupWait,
+                              @Value("${token.expiration.time}") long tokenLifetimeMillis) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.keyRing = keyRing;
+        this.cipher = cipher;
+        this.algorithm = algorithm;
+        this.rotationInterval = rotationInterval;
+        this.publishAhead = publishAhead;
+        this.tokenLifetime = Duration.ofMillis(tokenLifetimeMillis);
+        this.startupWait = startupWait;
+        if (publishAhead.compareTo(jwksMaxAge) < 0) {
+            log.warn("Keys:: jwt.keys.publish-ahead ({}) is shorter than jwt.jwks.max-age ({}); verifiers may see "
+                    + "tokens signed with a key missing from their cached key set", publishAhead, jwksMaxAge);
+        }
+    }
+
+    // Runs before the web server starts, so the first request already has a signing key
+    @PostConstruct
+    public void initialize() {
+        long deadline = System.nanoTime() + startupWait.toNanos();
+        rotateIfDue();
+        while (keyRing.keys().isEmpty() && System.nanoTime() < deadline) {
+            log.info("Keys:: No signing key yet, waiting for the node creating it");
+            try {
+                Thread.sleep(STARTUP_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            rotateIfDue();
+        }
+        if (keyRing.keys().isEmpty()) {
+            throw new IllegalStateException("No signing keys could be loaded or created within " + startupWait);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.keys.check-interval-ms:60000}")
+    public void rotateIfDue() {
+        try {
+            List<SigningKey> keys = load();
+            String lockToken = rotationDue(keys) ? lock() : null;
+            if (lockToken != null) {
+                try {
+                    keys = load();
+                    if (rotationDue(keys)) {
+                        keys = rotate(keys);
+                    }
+                } finally {
+                    unlock(lockToken);
+                }
+            }
+            keyRing.replace(prune(keys));
+        } catch (RuntimeException e) {
+            log.error("Keys:: Signing key check failed, keeping {} loaded keys", keyRing.keys().size(), e);
+        }
+    }
+
+    // Called for every message on the change channel, including the ones this node published
+    public void reload() {
+        try {
+            keyRing.replace(prune(load()));
+        } catch (RuntimeException e) {
+            log.error("Keys:: Reloading signing keys failed", e);
+        }
+    }
+
+    private boolean rotationDue(List<SigningKey> keys) {
+        Optional<SigningKey> newest = keys.stream().max(Comparator.comparing(SigningKey::activatesAt));
+        return newest.isEmpty()
+                || !newest.get().activatesAt().plus(rotationInterval).minus(publishAhead).isAfter(Instant.now());
+    }
+
+    private List<SigningKey> rotate(List<SigningKey> keys) {
+        Instant now = Instant.now();
+        // The very first key signs at once; later ones are published ahead of use
+        Instant activatesAt = keys.isEmpty() ? now : now.plus(publishAhead);
+        SigningKey next = SigningKey.generate(algorithm, activatesAt);
+        Instant retireAt = activatesAt.plus(tokenLifetime);
+
+        List<SigningKey> rotated = new ArrayList<>();
+        Map<String, String> writes = new HashMap<>();
+        for (SigningKey key : keys) {
+            SigningKey updated = key.expiresAt() == null ? key.expiringAt(retireAt) : key;
+            rotated.add(updated);
+            writes.put(updated.kid(), serialize(updated));
+        }
+        rotated.add(next);
+        writes.put(next.kid(), serialize(next));
+        redisTemplate.opsForHash().putAll(KEYS_KEY, writes);
+        redisTemplate.convertAndSend(CHANGED_CHANNEL, next.kid());
+        log.info("Keys:: Created {} signing key {}, active from {}", algorithm, next.kid(), activatesAt);
+        return rotated;
+    }
+
+    private List<SigningKey> prune(List<SigningKey> keys) {
+        Instant now = Instant.now();
+        List<SigningKey> live = new ArrayList<>();
+        for (SigningKey key : keys) {
+            if (key.isExpired(now)) {
+                redisTemplate.opsForHash().delete(KEYS_KEY, key.kid());
+                log.info("Keys:: Dropped expired signing key {}", key.kid());
+            } else {
+                live.add(key);
+            }
+        }
+        return live;
+    }
+
+    // Returns the lock token, or null if another node holds the lock
+    private String lock() {
+        String token = UUID.randomUUID().toString();
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, LOCK_TTL))
+                ? token : null;
+    }
+
+    private void unlock(String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, List.of(LOCK_KEY), token);
+    }
+
+    private List<SigningKey> load() {
+        List<SigningKey> keys = new ArrayList<>();
+        for (Object value : redisTemplate.opsForHash().values(KEYS_KEY)) {
+            try {
+                keys.add(SigningKey.fromStored(objectMapper.readValue((String) value, SigningKey.Stored.class), cipher));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Unreadable signing key entry", e);
+            }
+        }
+        return keys;
+    }
+
+    private String serialize(SigningKey key) {
+        try {
+            return objectMapper.writeValueAsString(key.toStored(cipher));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
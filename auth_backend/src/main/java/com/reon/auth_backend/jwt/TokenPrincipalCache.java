@@ -0,0 +1,134 @@
+package com.reon.auth_backend.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-process cache of principals resolved from already verified tokens.
+ * Entries are keyed by a SHA-256 digest of the raw token (the token itself is never kept)
+ * and live until the token's expiry, capped by {@code jwt.principal-cache.max-ttl} so
+ * role or account changes are picked up within that window.
+ * <p>
+ * Evicting a user does not scan the cache: it records the current generation for the user, and
+ * entries loaded before that generation are dropped when they are next read. Callers take
+ * {@link #generation()} before loading a principal, so a load racing with an eviction is never served.
+ */
+@Component
+public class TokenPrincipalCache {
+    private final Cache<String, CachedPrincipal> cache;
+    // Generation of each user's last eviction; older entries expire on their own within max-ttl
+    private final Cache<String, Long> evictions;
+    private final AtomicLong generations = new AtomicLong();
+    private final long maxTtlNanos;
+
+    public TokenPrincipalCache(@Value("${jwt.principal-cache.max-size:10000}") long maxSize,
+                               @Value("${jwt.principal-cache.max-ttl:5m}") Duration maxTtl) {
+        this.maxTtlNanos = maxTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        this.evictions = Caffeine.newBuilder()
+                .expireAfterWrite(maxTtl)
+                .build();
+    }
+
+    public CachedPrincipal get(String token) {
+        String key = digest(token);
+        CachedPrincipal cached = cache.getIfPresent(key);
+        if (cached != null && cached.principal() != null) {
+            Long evictedAt = evictions.getIfPresent(cached.principal().getUsername());
+            if (evictedAt != null && cached.generation() < evictedAt) {
+                cache.asMap().remove(key, cached);
+                return null;
+            }
+        }
+        return cached;
+    }
+
+    // Taken before a principal is loaded and passed to put
+    public long generation() {
+        return generations.get();
+    }
+
+    // Keeps the token id and issue time next to the principal so cached tokens still go through revocation checks
+    public CachedPrincipal put(String token, UserDetails principal, Claims claims, long generation) {
+        Date expiration = claims.getExpiration();
+        CachedPrincipal cached = new CachedPrincipal(principal, claims.getId(),
+                JwtUtils.issuedAtMillis(claims),
+                expiration != null ? expiration.getTime() : 0, generation);
+        if (expiration != null && expiration.getTime() > System.currentTimeMillis()) {
+            cache.put(digest(token), cached);
+        }
+        return cached;
+    }
+
+    // Drops every cached token of a user, e.g. after a role change or account removal
+    public void evictUser(String username) {
+        evictions.put(username, generations.incrementAndGet());
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    // Remaining lifetime of a cached token, for tests
+    Optional<Duration> expiresIn(String token) {
+        return cache.policy().expireVariably().flatMap(policy -> policy.getExpiresAfter(digest(token)));
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record CachedPrincipal(UserDetails principal, String tokenId, long issuedAtMillis, long expiresAtMillis,
+                                  long generation) {
+    }
+
+    private class TokenExpiry implements Expiry<String, CachedPrincipal> {
+        @Override
+        public long expireAfterCreate(String key, CachedPrincipal value, long currentTime) {
+            long untilExpiry = Duration.ofMillis(value.expiresAtMillis() - System.currentTimeMillis()).toNanos();
+            return Math.max(0, Math.min(untilExpiry, maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
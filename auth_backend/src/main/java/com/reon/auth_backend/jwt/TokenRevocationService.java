@@ -0,0 +1,198 @@
+package com.reon.auth_backend.jwt;
+
+import com.reon.auth_backend.cache.BloomFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared token denylist with node-local Bloom filters in front of it.
+ * <p>
+ * A revoked token id is stored as {@code revoked:jti:<jti>} until the token would have expired. Revoking every
+ * token of a user stores the revocation time (epoch seconds) as {@code revoked:user:<email>} for one token
+ * lifetime, and tokens issued at or before it are rejected. Every entry is also indexed by expiry in a sorted
+ * set and announced on {@link #REVOCATION_CHANNEL}; each node rebuilds its filters from the index on a schedule
+ * and adds announced entries as they arrive. Redis is only asked when a filter reports a probable hit.
+ */
+@Component
+public class TokenRevocationService {
+    public static final String REVOCATION_CHANNEL = "token:revoked";
+    private static final String KEY_PREFIX = "revoked:";
+    private static final String INDEX_KEY = "revoked:index";
+    private static final String TOKEN_MEMBER = "jti:";
+    private static final String USER_MEMBER = "user:";
+    // Any epoch value below this (year 5138 in seconds, 1973 in milliseconds) was stored in seconds
+    private static final long LEGACY_SECONDS_BOUND = 100_000_000_000L;
+    private static final Mono<Boolean> NOT_REVOKED = Mono.just(false);
+
+    private final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final long tokenLifetimeMillis;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    // Announcements since the last rebuild started, re-applied after the swap so none is lost in between
+    private final Map<String, Long> recent = new ConcurrentHashMap<>();
+    private volatile Filters filters;
+
+    public TokenRevocationService(StringRedisTemplate redisTemplate, ReactiveStringRedisTemplate reactiveRedisTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${token.expiration.time}") long tokenLifetimeMillis,
+                                  @Value("${jwt.revocation.expected-insertions:100000}") long expectedInsertions,
+                                  @Value("${jwt.revocation.false-positive-probability:0.001}") double falsePositiveProbability) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.filters = emptyFilters(expectedInsertions);
+    }
+
+    // Tokens issued before ids were added have no jti and can only be revoked through their user
+    public void revokeToken(String tokenId, Date expiration) {
+        if (tokenId == null || expiration == null) {
+            return;
+        }
+        long ttl = expiration.getTime() - System.currentTimeMillis();
+        if (ttl > 0) {
+            store(TOKEN_MEMBER + tokenId, "1", expiration.getTime(), ttl);
+            log.info("Revocation:: Revoked token {}", tokenId);
+        }
+    }
+
+    public void revokeUser(String email) {
+        long now = System.currentTimeMillis();
+        store(USER_MEMBER + email, String.valueOf(now), now + tokenLifetimeMillis, tokenLifetimeMillis);
+        log.info("Revocation:: Revoked all tokens of {}", email);
+    }
+
+    /**
+     * Hot-path check: two Bloom filter lookups for tokens that were never revoked, and a Redis read
+     * only on a probable hit. Fails closed if Redis cannot confirm a probable hit.
+     */
+    public boolean isRevoked(String tokenId, String email, long issuedAtMillis) {
+        Filters current = filters;
+        boolean tokenHit = tokenId != null && current.tokens().mightContain(tokenId);
+        boolean userHit = email != null && current.users().mightContain(email);
+        if (!tokenHit && !userHit) {
+            return false;
+        }
+        try {
+            if (tokenHit && Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + TOKEN_MEMBER + tokenId))) {
+                return remoteResult("revoked", true);
+            }
+            if (userHit) {
+                String revokedAt = redisTemplate.opsForValue().get(KEY_PREFIX + USER_MEMBER + email);
+                if (revokedAt != null && issuedAtMillis <= revokedAtMillis(revokedAt)) {
+                    return remoteResult("revoked", true);
+                }
+            }
+            return remoteResult("false_positive", false);
+        } catch (RuntimeException e) {
+            log.warn("Revocation:: Redis unavailable, rejecting probable revoked token: {}", e.getMessage());
+            return remoteResult("error", true);
+        }
+    }
+
+    // Same check for the introspection path: the confirming Redis reads run without blocking the caller
+    public Mono<Boolean> isRevokedReactive(String tokenId, String email, long issuedAtMillis) {
+        Filters current = filters;
+        boolean tokenHit = tokenId != null && current.tokens().mightContain(tokenId);
+        boolean userHit = email != null && current.users().mightContain(email);
+        if (!tokenHit && !userHit) {
+            return NOT_REVOKED;
+        }
+        Mono<Boolean> token = tokenHit
+                ? reactiveRedisTemplate.hasKey(KEY_PREFIX + TOKEN_MEMBER + tokenId)
+                : NOT_REVOKED;
+        Mono<Boolean> user = userHit
+                ? reactiveRedisTemplate.opsForValue().get(KEY_PREFIX + USER_MEMBER + email)
+                        .map(revokedAt -> issuedAtMillis <= revokedAtMillis(revokedAt))
+                        .defaultIfEmpty(false)
+                : NOT_REVOKED;
+        return Mono.zip(token, user, (tokenRevoked, userRevoked) -> tokenRevoked || userRevoked)
+                .map(revoked -> remoteResult(revoked ? "revoked" : "false_positive", revoked))
+                .onErrorResume(e -> {
+                    log.warn("Revocation:: Redis unavailable, rejecting probable revoked token: {}", e.getMessage());
+                    return Mono.just(remoteResult("error", true));
+                });
+    }
+
+    // Entries written before the switch to milliseconds hold seconds; they cover that whole second
+    private static long revokedAtMillis(String revokedAt) {
+        long value = Long.parseLong(revokedAt);
+        return value < LEGACY_SECONDS_BOUND ? value * 1000 + 999 : value;
+    }
+
+    // Called for every message on the revocation channel, including the ones this node published
+    public void addLocal(String member) {
+        recent.put(member, System.nanoTime());
+        add(filters, member);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:30000}")
+    public void sync() {
+        long startedAt = System.nanoTime();
+        Set<String> members;
+        try {
+            long now = System.currentTimeMillis();
+            redisTemplate.opsForZSet().removeRangeByScore(INDEX_KEY, Double.NEGATIVE_INFINITY, now);
+            members = redisTemplate.opsForZSet().rangeByScore(INDEX_KEY, now, Double.POSITIVE_INFINITY);
+        } catch (RuntimeException e) {
+            log.warn("Revocation:: Sync failed, keeping the current filters: {}", e.getMessage());
+            return;
+        }
+        int count = members == null ? 0 : members.size();
+        // Sized with headroom so the false positive rate holds until the next rebuild
+        Filters rebuilt = emptyFilters(Math.max(expectedInsertions, 2L * count));
+        if (members != null) {
+            members.forEach(member -> add(rebuilt, member));
+        }
+        filters = rebuilt;
+        recent.keySet().forEach(member -> add(rebuilt, member));
+        recent.values().removeIf(receivedAt -> receivedAt - startedAt < 0);
+        log.debug("Revocation:: Rebuilt filters from {} entries", count);
+    }
+
+    private void store(String member, String value, long expiresAtMillis, long ttlMillis) {
+        redisTemplate.opsForValue().set(KEY_PREFIX + member, value, Duration.ofMillis(ttlMillis));
+        redisTemplate.opsForZSet().add(INDEX_KEY, member, expiresAtMillis);
+        addLocal(member);
+        redisTemplate.convertAndSend(REVOCATION_CHANNEL, member);
+    }
+
+    private boolean remoteResult(String result, boolean revoked) {
+        meterRegistry.counter("auth.jwt.revocation.remote", "result", result).increment();
+        return revoked;
+    }
+
+    private static void add(Filters target, String member) {
+        if (member.startsWith(TOKEN_MEMBER)) {
+            target.tokens().put(member.substring(TOKEN_MEMBER.length()));
+        } else if (member.startsWith(USER_MEMBER)) {
+            target.users().put(member.substring(USER_MEMBER.length()));
+        }
+    }
+
+    private Filters emptyFilters(long capacity) {
+        return new Filters(BloomFilter.create(capacity, falsePositiveProbability),
+                BloomFilter.create(capacity, falsePositiveProbability));
+    }
+
+    private record Filters(BloomFilter tokens, BloomFilter users) {
+    }
+}
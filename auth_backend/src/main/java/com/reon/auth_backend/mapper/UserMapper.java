@@ -1,9 +1,9 @@
 package com.reon.auth_backend.mapper;
 
-import com.reon.auth_backend.dto.UserProfileDTO;
 import com.reon.auth_backend.dto.UserRequestDTO;
 import com.reon.auth_backend.dto.UserResponseDTO;
 import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.model.UserPrincipal;
 
 public class UserMapper {
     // Incoming data from frontend gets saved in database
@@ -29,16 +29,9 @@ public class UserMapper {
         return dto;
     }
 
-    // Minimal info about user (profile)
-    public static UserProfileDTO toProfile(User user) {
-        UserProfileDTO dto = new UserProfileDTO();
-        dto.setId(user.getId());
-        dto.setName(user.getName());
-        dto.setEmail(user.getEmail());
-        dto.setRoles(user.getRoles());
-        dto.setCreatedAt(user.getCreatedAt());
-        dto.setUpdatedAt(user.getUpdatedAt());
-        return dto;
+    // Authorization-only view of the user, safe to cache (no password hash)
+    public static UserPrincipal toPrincipal(User user) {
+        return new UserPrincipal(user.getId(), user.getEmail(), user.getRoles(), user.isAccountEnabled());
     }
 
     // Update existing user info
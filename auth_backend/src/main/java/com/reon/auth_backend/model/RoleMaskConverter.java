@@ -0,0 +1,24 @@
+package com.reon.auth_backend.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Stores {@link User.Role} sets as the same bitmask used in token claims. Decodes to a mutable
+ * {@link EnumSet}, so roles can still be added to a loaded user and picked up by dirty checking.
+ */
+@Converter
+public class RoleMaskConverter implements AttributeConverter<Set<User.Role>, Integer> {
+    @Override
+    public Integer convertToDatabaseColumn(Set<User.Role> roles) {
+        return roles == null ? 0 : User.Role.toMask(roles);
+    }
+
+    @Override
+    public Set<User.Role> convertToEntityAttribute(Integer mask) {
+        return mask == null ? EnumSet.noneOf(User.Role.class) : User.Role.fromMask(mask);
+    }
+}
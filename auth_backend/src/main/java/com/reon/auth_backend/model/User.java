@@ -1,9 +1,19 @@
 package com.reon.auth_backend.model;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,20 +21,31 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "users")
+// Second-level cached together with the email -> id mapping; roles live in a column, so no collection cache
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-entities")
+@NaturalIdCache(region = "user-email-ids")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_created_at_id", columnList = "createdAt, id"),
+        @Index(name = "idx_users_verified_created_at_id", columnList = "emailVerified, createdAt, id"),
+        @Index(name = "idx_users_enabled_created_at_id", columnList = "accountEnabled, createdAt, id")
+})
 public class User implements UserDetails, Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    // Stays IDENTITY: replicas of the previous release keep inserting through AUTO_INCREMENT during a rolling
+    // deploy, and ids from a second source would collide with theirs
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -32,16 +53,32 @@ public class User implements UserDetails, Serializable {
     @Column(nullable = false)
     private String name;
 
+    @NaturalId
     @Column(nullable = false, unique = true, updatable = false)
     private String email;
 
     @Column(nullable = false)
     private String password;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @Enumerated(EnumType.STRING)
+    // One int column instead of a collection table, so loading a user never needs a second select.
+    // The default is Role.USER's bit, for rows inserted by replicas that do not know the column yet
+    @Convert(converter = RoleMaskConverter.class)
+    @Column(name = "role_mask", nullable = false)
+    @ColumnDefault("1")
     private Set<Role> roles = EnumSet.of(Role.USER);
 
+    // The previous release reads roles from this table, so it is still written during a rolling deploy.
+    // Lazy and never read here; drop the mapping and the table in the next release (see RoleMaskMigration)
+    @ElementCollection
+    @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
+    @Enumerated(EnumType.STRING)
+    @Column(name = "roles")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Set<Role> legacyRoles = EnumSet.of(Role.USER);
+
     private boolean accountEnabled = false;
     private boolean emailVerified = false;
 
@@ -51,30 +88,94 @@ public class User implements UserDetails, Serializable {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
-    @JoinColumn(name = "token_id", referencedColumnName = "verificationTokenId")
-    private VerificationToken token;
-
     @PrePersist
     public void prePersist() {
         LocalDateTime now = LocalDateTime.now();
         this.createdAt = now;
         this.updatedAt = now;
+        mirrorLegacyRoles();
     }
 
-    @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
     }
 
+    // Separate from preUpdate(), which is also called on detached users where the lazy table cannot load
+    @PreUpdate
+    void beforeFlushedUpdate() {
+        preUpdate();
+        mirrorLegacyRoles();
+    }
+
+    private void mirrorLegacyRoles() {
+        if (!legacyRoles.equals(roles)) {
+            legacyRoles.clear();
+            legacyRoles.addAll(roles);
+        }
+    }
+
     public enum Role{
-        USER, ADMIN
+        USER(1), ADMIN(1 << 1);
+
+        private final int bit;
+
+        Role(int bit) {
+            this.bit = bit;
+        }
+
+        public int bit() {
+            return bit;
+        }
+
+        // Compact representation used in token claims
+        public static int toMask(Set<Role> roles) {
+            int mask = 0;
+            for (Role role : roles) {
+                mask |= role.bit;
+            }
+            return mask;
+        }
+
+        public static Set<Role> fromMask(int mask) {
+            Set<Role> roles = EnumSet.noneOf(Role.class);
+            for (Role role : values()) {
+                if ((mask & role.bit) != 0) {
+                    roles.add(role);
+                }
+            }
+            return roles;
+        }
+
+        // Shared immutable authority lists indexed by mask, one per role combination (bits are 1 << ordinal)
+        private static final List<List<GrantedAuthority>> AUTHORITIES = authorityTable();
+
+        public static List<GrantedAuthority> authorities(Set<Role> roles) {
+            return AUTHORITIES.get(toMask(roles));
+        }
+
+        private static List<List<GrantedAuthority>> authorityTable() {
+            Role[] roles = values();
+            GrantedAuthority[] granted = new GrantedAuthority[roles.length];
+            for (Role role : roles) {
+                granted[role.ordinal()] = new SimpleGrantedAuthority("ROLE_" + role.name());
+            }
+            List<List<GrantedAuthority>> table = new ArrayList<>();
+            for (int mask = 0; mask < 1 << roles.length; mask++) {
+                List<GrantedAuthority> authorities = new ArrayList<>();
+                for (Role role : roles) {
+                    if ((mask & role.bit) != 0) {
+                        authorities.add(granted[role.ordinal()]);
+                    }
+                }
+                table.add(List.copyOf(authorities));
+            }
+            return List.copyOf(table);
+        }
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return roles.stream().map(role -> new SimpleGrantedAuthority("ROLE_" + role.name()))
-                .collect(Collectors.toList());
+        return Role.authorities(roles);
     }
 
     @Override
@@ -0,0 +1,58 @@
+package com.reon.auth_backend.model;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lightweight authenticated principal that carries only what authorization needs.
+ * Built from token claims in stateless mode, so it never holds a password hash.
+ */
+@Getter
+@ToString
+public class UserPrincipal implements UserDetails, Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String email;
+    private final Set<User.Role> roles;
+    private final boolean accountEnabled;
+    @ToString.Exclude
+    private final List<GrantedAuthority> authorities;
+
+    public UserPrincipal(Long id, String email, Set<User.Role> roles, boolean accountEnabled) {
+        this.id = id;
+        this.email = email;
+        this.roles = Set.copyOf(roles);
+        this.accountEnabled = accountEnabled;
+        this.authorities = User.Role.authorities(roles);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return accountEnabled;
+    }
+}
@@ -1,23 +0,0 @@
-package com.reon.auth_backend.model;
-
-import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-import lombok.ToString;
-
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-@Entity
-public class VerificationToken {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long verificationTokenId;
-    private String token;
-    private Long expiryDate;
-
-    @OneToOne(mappedBy = "token")
-    @ToString.Exclude
-    private User user;
-}
@@ -0,0 +1,37 @@
+package com.reon.auth_backend.repository;
+
+import com.reon.auth_backend.model.EmailOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+    Optional<EmailOutbox> findFirstByRecipientAndPurposeAndStatus(String recipient, EmailOutbox.Purpose purpose,
+                                                                  EmailOutbox.Status status);
+
+    // Due rows plus rows whose sending lease ran out (node died mid-send); SKIP LOCKED lets replicas drain in parallel
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select e from EmailOutbox e " +
+            "where (e.status = :pending and e.nextAttemptAt <= :now) " +
+            "or (e.status = :sending and e.lockedUntil < :now) " +
+            "order by e.nextAttemptAt")
+    List<EmailOutbox> findDispatchable(@Param("pending") EmailOutbox.Status pending,
+                                       @Param("sending") EmailOutbox.Status sending,
+                                       @Param("now") LocalDateTime now, Limit limit);
+
+    long countByStatus(EmailOutbox.Status status);
+
+    @Modifying
+    @Query("delete from EmailOutbox e where e.status = :status and e.updatedAt < :before")
+    int deleteByStatusAndUpdatedAtBefore(@Param("status") EmailOutbox.Status status,
+                                         @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,53 @@
+package com.reon.auth_backend.repository;
+
+import com.reon.auth_backend.model.EmailOutbox;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * The email outbox was created with an IDENTITY id, so its table may already hold rows while a newly
+ * created id sequence starts at 1. MySQL has no sequences, so Hibernate keeps the sequence as a single-row
+ * {@code next_val} table; this moves that value past the highest existing id at startup.
+ * <p>
+ * Only the outbox is aligned. Users keep IDENTITY ids, because replicas of the previous release insert
+ * users during a rolling deploy and a second id source would collide with theirs; the outbox is only
+ * written by this release.
+ */
+@Component
+public class IdSequenceAlignment {
+    private final Logger log = LoggerFactory.getLogger(IdSequenceAlignment.class);
+    private final JdbcTemplate jdbcTemplate;
+
+    // The entity manager factory is only a dependency so the schema update has run before this bean
+    public IdSequenceAlignment(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void align() {
+        align("email_outbox", EmailOutbox.ID_SEQUENCE, EmailOutbox.ID_ALLOCATION_SIZE);
+    }
+
+    private void align(String table, String sequenceTable, int allocationSize) {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+        if (maxId == null || maxId == 0) {
+            return;
+        }
+        try {
+            // The pooled optimizer hands out (next_val - allocation + 1 .. next_val), so it must clear max(id) by a block
+            long next = maxId + allocationSize + 1;
+            int updated = jdbcTemplate.update("update " + sequenceTable + " set next_val = ? where next_val < ?", next, next);
+            if (updated > 0) {
+                log.info("Repository:: Moved {} past existing id {}", sequenceTable, maxId);
+            }
+        } catch (DataAccessException e) {
+            // Databases with native sequences have no table to adjust
+            log.debug("Repository:: No sequence table {} to align: {}", sequenceTable, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.reon.auth_backend.repository;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * OTP state kept in Redis under {@code otp:<purpose>:<email>}. Expiry is the key's TTL,
+ * and consuming an OTP is a single compare-and-delete script so a code can be used only once.
+ * A consumed code can be restored for the rest of its lifetime if the work it authorized is rolled back.
+ */
+@Repository
+public class OtpRepository {
+    private static final RedisScript<Long> CONSUME_SCRIPT = new DefaultRedisScript<>("""
+            local stored = redis.call('GET', KEYS[1])
+            if not stored then
+                return -1
+            end
+            if stored ~= ARGV[1] then
+                return 0
+            end
+            local remaining = redis.call('PTTL', KEYS[1])
+            redis.call('DEL', KEYS[1])
+            return math.max(remaining, 1)
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public OtpRepository(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void save(Purpose purpose, String email, String otp, Duration ttl) {
+        redisTemplate.opsForValue().set(key(purpose, email), otp, ttl);
+    }
+
+    // Checks the OTP without using it up
+    public Result verify(Purpose purpose, String email, String otp) {
+        String stored = redisTemplate.opsForValue().get(key(purpose, email));
+        if (stored == null) {
+            return Result.MISSING;
+        }
+        return stored.equals(otp) ? Result.MATCHED : Result.MISMATCH;
+    }
+
+    // Checks the OTP and deletes it in the same atomic step; a match comes with the code's remaining lifetime
+    public Consumption consume(Purpose purpose, String email, String otp) {
+        Long outcome = redisTemplate.execute(CONSUME_SCRIPT, List.of(key(purpose, email)), otp);
+        if (outcome == null || outcome < 0) {
+            return new Consumption(Result.MISSING, Duration.ZERO);
+        }
+        return outcome == 0 ? new Consumption(Result.MISMATCH, Duration.ZERO)
+                : new Consumption(Result.MATCHED, Duration.ofMillis(outcome));
+    }
+
+    // Puts a consumed OTP back, unless a new one was issued in the meantime
+    public void restore(Purpose purpose, String email, String otp, Duration remaining) {
+        redisTemplate.opsForValue().setIfAbsent(key(purpose, email), otp, remaining);
+    }
+
+    private static String key(Purpose purpose, String email) {
+        return "otp:" + purpose.prefix + ":" + email;
+    }
+
+    public enum Purpose {
+        ACCOUNT_VERIFICATION("verify"), PASSWORD_RESET("reset");
+
+        private final String prefix;
+
+        Purpose(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    public enum Result {
+        MATCHED, MISMATCH, MISSING
+    }
+
+    public record Consumption(Result result, Duration remaining) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.reon.auth_backend.repository;
+
+import com.reon.auth_backend.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Roles used to live in the {@code user_roles} collection table. The schema update adds
+ * {@code users.role_mask} with the USER bit as default; this fills it from the old table once per
+ * database, at startup. The first node to insert the {@code schema_migrations} row runs the backfill in
+ * the same transaction; the others wait on that row and skip once it commits.
+ * <p>
+ * Replicas of the previous release still read and write {@code user_roles} during a rolling deploy, so
+ * the table is kept and still written (see {@code User.legacyRoles}). The next release reruns this
+ * backfill under a new name, to pick up roles granted by old replicas after it ran, and then drops it.
+ */
+@Component
+public class RoleMaskMigration {
+    static final String NAME = "user_roles_to_role_mask";
+    private static final String LEGACY_TABLE = "user_roles";
+
+    private final Logger log = LoggerFactory.getLogger(RoleMaskMigration.class);
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // The entity manager factory is only a dependency so the schema update has run before this bean
+    public RoleMaskMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        try {
+            jdbcTemplate.queryForObject("select count(*) from " + LEGACY_TABLE, Long.class);
+        } catch (DataAccessException e) {
+            // A schema created without the old table has nothing to move
+            return;
+        }
+        jdbcTemplate.execute("create table if not exists schema_migrations "
+                + "(name varchar(100) not null primary key, applied_at timestamp not null)");
+        String bits = Arrays.stream(User.Role.values())
+                .map(role -> "when '" + role.name() + "' then " + role.bit())
+                .collect(Collectors.joining(" ", "case r.roles ", " else 0 end"));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("insert into schema_migrations (name, applied_at) values (?, current_timestamp)", NAME);
+                // Users without any row in the old table keep the column default, the USER role
+                int updated = jdbcTemplate.update("update users u set role_mask = (select sum(" + bits + ") from "
+                        + LEGACY_TABLE + " r where r.user_id = u.id) where exists (select 1 from " + LEGACY_TABLE
+                        + " r where r.user_id = u.id)");
+                log.info("Repository:: Moved roles of {} users from {} into users.role_mask", updated, LEGACY_TABLE);
+            });
+        } catch (DuplicateKeyException e) {
+            log.debug("Repository:: {} already applied", NAME);
+        }
+    }
+}
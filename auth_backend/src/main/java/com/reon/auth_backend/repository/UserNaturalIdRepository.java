@@ -0,0 +1,13 @@
+package com.reon.auth_backend.repository;
+
+import com.reon.auth_backend.model.User;
+
+import java.util.Optional;
+
+public interface UserNaturalIdRepository {
+    /**
+     * Resolves the user through its natural id: the persistence context first, then the second-level
+     * cache, and only then a select by email.
+     */
+    Optional<User> findByNaturalEmail(String email);
+}
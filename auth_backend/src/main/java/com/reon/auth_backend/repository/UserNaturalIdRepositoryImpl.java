@@ -0,0 +1,23 @@
+package com.reon.auth_backend.repository;
+
+import com.reon.auth_backend.model.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+    private final EntityManager entityManager;
+
+    public UserNaturalIdRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    // The session is unwrapped, so it must be bound to a transaction or the shared proxy would close it at once
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<User> findByNaturalEmail(String email) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).loadOptional(email);
+    }
+}
@@ -1,13 +1,72 @@
 package com.reon.auth_backend.repository;
 
+import com.reon.auth_backend.dto.UserProfileDTO;
+import com.reon.auth_backend.dto.UserResponseDTO;
 import com.reon.auth_backend.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>,
+        UserNaturalIdRepository {
     boolean existsByEmail(String email);
     Optional<User> findByEmail(String email);
+
+    @Query("select u.id from User u where u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+
+    @Query("select u.email from User u where u.email in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // Read-only views: only the columns the DTO needs, and no managed entity to dirty-check
+    @Query("select new com.reon.auth_backend.dto.UserResponseDTO(u.id, u.name, u.email, u.emailVerified, "
+            + "u.accountEnabled, u.roles, u.createdAt, u.updatedAt) from User u where u.id = :id")
+    Optional<UserResponseDTO> findResponseById(@Param("id") Long id);
+
+    @Query("select new com.reon.auth_backend.dto.UserResponseDTO(u.id, u.name, u.email, u.emailVerified, "
+            + "u.accountEnabled, u.roles, u.createdAt, u.updatedAt) from User u where u.email = :email")
+    Optional<UserResponseDTO> findResponseByEmail(@Param("email") String email);
+
+    @Query(value = "select new com.reon.auth_backend.dto.UserResponseDTO(u.id, u.name, u.email, u.emailVerified, "
+            + "u.accountEnabled, u.roles, u.createdAt, u.updatedAt) from User u",
+            countQuery = "select count(u) from User u")
+    Page<UserResponseDTO> findResponses(Pageable pageable);
+
+    @Query("select new com.reon.auth_backend.dto.UserProfileDTO(u.id, u.name, u.email, u.roles, u.createdAt, u.updatedAt) "
+            + "from User u where u.email = :email")
+    Optional<UserProfileDTO> findProfileByEmail(@Param("email") String email);
+
+    @Query("select u.name from User u where u.email = :email")
+    Optional<String> findNameByEmail(@Param("email") String email);
+
+    // Forward-only read of the whole table; rows are fetched from the server in chunks rather than materialized
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            // A full export would otherwise push every user through the second-level cache
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("select u from User u order by u.id")
+    Stream<User> streamAllByOrderById();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select u.email from User u")
+    Stream<String> streamAllEmails();
+
 }
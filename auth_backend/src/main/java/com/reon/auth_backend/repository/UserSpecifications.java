@@ -0,0 +1,42 @@
+package com.reon.auth_backend.repository;
+
+import com.reon.auth_backend.dto.UserCursor;
+import com.reon.auth_backend.model.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+public class UserSpecifications {
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> emailVerified(Boolean emailVerified) {
+        return (root, query, cb) -> emailVerified == null ? null : cb.equal(root.get("emailVerified"), emailVerified);
+    }
+
+    public static Specification<User> accountEnabled(Boolean accountEnabled) {
+        return (root, query, cb) -> accountEnabled == null ? null : cb.equal(root.get("accountEnabled"), accountEnabled);
+    }
+
+    // Seeks past the last row of the previous page on the (sort column, id) index instead of using OFFSET
+    public static Specification<User> after(UserCursor cursor) {
+        return (root, query, cb) -> {
+            if (cursor == null) {
+                return null;
+            }
+            boolean ascending = cursor.direction() == Sort.Direction.ASC;
+            if (cursor.sort() == UserCursor.SortField.ID) {
+                return ascending ? cb.greaterThan(root.get("id"), cursor.id()) : cb.lessThan(root.get("id"), cursor.id());
+            }
+            LocalDateTime createdAt = cursor.createdAt();
+            return cb.or(
+                    ascending ? cb.greaterThan(root.get("createdAt"), createdAt) : cb.lessThan(root.get("createdAt"), createdAt),
+                    cb.and(
+                            cb.equal(root.get("createdAt"), createdAt),
+                            ascending ? cb.greaterThan(root.get("id"), cursor.id()) : cb.lessThan(root.get("id"), cursor.id())
+                    )
+            );
+        };
+    }
+}
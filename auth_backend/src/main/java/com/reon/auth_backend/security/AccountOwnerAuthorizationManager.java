@@ -0,0 +1,40 @@
+package com.reon.auth_backend.security;
+
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.model.UserPrincipal;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.function.Supplier;
+
+/**
+ * Grants a request only to the owner of the account named by the {@code {id}} path variable. The id is
+ * read from the authenticated principal, which the token already carries, so the check needs no query.
+ */
+public class AccountOwnerAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        Authentication current = authentication.get();
+        if (current == null || !current.isAuthenticated()) {
+            return DENIED;
+        }
+        Long principalId = principalId(current.getPrincipal());
+        String pathId = context.getVariables().get("id");
+        return principalId != null && principalId.toString().equals(pathId) ? GRANTED : DENIED;
+    }
+
+    private static Long principalId(Object principal) {
+        if (principal instanceof UserPrincipal userPrincipal) {
+            return userPrincipal.getId();
+        }
+        if (principal instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
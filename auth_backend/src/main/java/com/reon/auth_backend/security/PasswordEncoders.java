@@ -0,0 +1,58 @@
+package com.reon.auth_backend.security;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the delegating encoder used for stored passwords. New hashes are written as
+ * {@code {id}hash} with the configured algorithm; existing hashes of any registered algorithm still
+ * verify, and hashes without a prefix (everything stored before the prefix was introduced) are
+ * treated as BCrypt.
+ */
+public final class PasswordEncoders {
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+    public static final String PBKDF2 = "pbkdf2";
+    // Stored for accounts created without a password; it matches nothing until the owner sets one via reset
+    public static final String NO_PASSWORD = "{none}";
+
+    private PasswordEncoders() {
+    }
+
+    public static DelegatingPasswordEncoder delegating(String algorithm, int bcryptStrength,
+                                                       int argon2MemoryKb, int argon2Iterations, int argon2Parallelism,
+                                                       int pbkdf2Iterations) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        encoders.put(BCRYPT, bcrypt);
+        encoders.put(ARGON2, new Argon2PasswordEncoder(16, 32, argon2Parallelism, argon2MemoryKb, argon2Iterations));
+        encoders.put(PBKDF2, new Pbkdf2PasswordEncoder("", 16, pbkdf2Iterations,
+                Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+        encoders.put("none", new NoPasswordEncoder());
+
+        if (!encoders.containsKey(algorithm) || algorithm.equals("none")) {
+            throw new IllegalArgumentException("Unsupported password hashing algorithm: " + algorithm);
+        }
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(algorithm, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
+    }
+
+    private static final class NoPasswordEncoder implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            throw new UnsupportedOperationException("Not a hashing algorithm");
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return false;
+        }
+    }
+}
@@ -1,14 +1,27 @@
 package com.reon.auth_backend.service;
 
+import com.reon.auth_backend.dto.CursorPageDTO;
+import com.reon.auth_backend.dto.ExportFormat;
+import com.reon.auth_backend.dto.UserCursorQueryDTO;
+import com.reon.auth_backend.dto.UserField;
 import com.reon.auth_backend.dto.UserResponseDTO;
 import com.reon.auth_backend.model.User;
 import org.springframework.data.domain.Page;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
 
 public interface AdminService {
     Page<UserResponseDTO> getUsers(int page, int size);
+    Page<Map<String, Object>> getUserFields(int page, int size, List<UserField> fields);
+    CursorPageDTO<UserResponseDTO> getUsersByCursor(UserCursorQueryDTO query);
+    void exportUsers(ExportFormat format, OutputStream outputStream) throws IOException;
 
     UserResponseDTO fetchUser(Long id);
     UserResponseDTO fetchUserByEmail(String email);
     UserResponseDTO promoteUser(Long id, User.Role role);
+    void forceLogout(Long id);
 }
@@ -1,8 +1,13 @@
 package com.reon.auth_backend.service;
 
+import com.reon.auth_backend.model.User;
+
+import java.util.List;
+
 public interface EmailService {
     void sendWelcomeEmail(String recipient, String name);
     void verificationOTP(String recipient, String name, String otp);
     void resetPassword(String recipient, String name, String otp);
     void passwordReset(String recipient, String name);
+    void invitations(List<User> users);
 }
@@ -0,0 +1,11 @@
+package com.reon.auth_backend.service;
+
+import com.reon.auth_backend.dto.IntrospectionDTO;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface TokenIntrospectionService {
+    Mono<IntrospectionDTO> introspect(String token);
+    Mono<List<IntrospectionDTO>> introspectAll(List<String> tokens);
+}
@@ -0,0 +1,11 @@
+package com.reon.auth_backend.service;
+
+import com.reon.auth_backend.dto.ExportFormat;
+import com.reon.auth_backend.dto.ImportReportDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface UserImportService {
+    ImportReportDTO importUsers(ExportFormat format, InputStream inputStream) throws IOException;
+}
@@ -12,6 +12,5 @@ public interface UserService {
     void deleteUser(Long id);
 
     JwtResponse authenticateUser(UserLoginDTO loginDTO);
-    boolean isUserLoggedIn(Long id);
     UserProfileDTO userProfile();
 }
@@ -1,58 +1,228 @@
 package com.reon.auth_backend.service.impl;
 
+import com.reon.auth_backend.cache.UserDetailsCache;
+import com.reon.auth_backend.cache.UserResponseCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.reon.auth_backend.dto.CursorPageDTO;
+import com.reon.auth_backend.dto.ExportFormat;
+import com.reon.auth_backend.dto.UserCursor;
+import com.reon.auth_backend.dto.UserCursorQueryDTO;
+import com.reon.auth_backend.dto.UserField;
 import com.reon.auth_backend.dto.UserResponseDTO;
 import com.reon.auth_backend.exceptions.UserNotFoundException;
+import com.reon.auth_backend.jwt.TokenRevocationService;
 import com.reon.auth_backend.mapper.UserMapper;
 import com.reon.auth_backend.model.User;
 import com.reon.auth_backend.repository.UserRepository;
+import com.reon.auth_backend.repository.UserSpecifications;
 import com.reon.auth_backend.service.AdminService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class AdminServiceImpl implements AdminService {
     private final Logger log = LoggerFactory.getLogger(AdminServiceImpl.class);
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
+    private final CacheManager cacheManager;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TokenRevocationService tokenRevocationService;
 
-    public AdminServiceImpl(UserRepository userRepository) {
+    public AdminServiceImpl(UserRepository userRepository, UserDetailsCache userDetailsCache, CacheManager cacheManager,
+                            EntityManager entityManager, ObjectMapper objectMapper,
+                            TokenRevocationService tokenRevocationService) {
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.cacheManager = cacheManager;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
     public Page<UserResponseDTO> getUsers(int pageNo, int pageSize) {
         log.info("Service:: Fetching all users with pagination: pageNo={}, pageSize={}", pageNo, pageSize);
         Pageable pageable = PageRequest.of(pageNo - 1, pageSize);
-        Page<User> users = userRepository.findAll(pageable);
-        return users.map(UserMapper::responseToUser);
+        return userRepository.findResponses(pageable);
+    }
+
+    // Sparse fieldset: selects only the requested columns and returns them keyed by property name
+    @Override
+    public Page<Map<String, Object>> getUserFields(int pageNo, int pageSize, List<UserField> fields) {
+        log.info("Service:: Fetching fields {} of all users: pageNo={}, pageSize={}", fields, pageNo, pageSize);
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize);
+        String select = fields.stream().map(field -> "u." + field.property()).collect(Collectors.joining(", "));
+        List<Tuple> rows = entityManager.createQuery("select " + select + " from User u", Tuple.class)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        List<Map<String, Object>> content = rows.stream().map(row -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                values.put(fields.get(i).property(), row.get(i));
+            }
+            return values;
+        }).toList();
+        return PageableExecutionUtils.getPage(content, pageable, userRepository::count);
+    }
+
+    @Override
+    public CursorPageDTO<UserResponseDTO> getUsersByCursor(UserCursorQueryDTO query) {
+        log.info("Service:: Fetching users by cursor: {}", query);
+        UserCursor.SortField sortField = query.getSort();
+        Sort.Direction direction = query.getDirection();
+        UserCursor after = query.getCursor() == null || query.getCursor().isBlank()
+                ? null : UserCursor.decode(query.getCursor(), sortField, direction);
+
+        Specification<User> filters = Specification.allOf(
+                UserSpecifications.emailVerified(query.getEmailVerified()),
+                UserSpecifications.accountEnabled(query.getAccountEnabled())
+        );
+        // id breaks ties so the order is total and every row appears exactly once across pages
+        Sort sort = sortField == UserCursor.SortField.ID
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, sortField.property()).and(Sort.by(direction, "id"));
+
+        // One extra row tells whether another page exists without counting
+        int size = query.getSize();
+        List<User> rows = userRepository.findBy(filters.and(UserSpecifications.after(after)),
+                q -> q.sortBy(sort).limit(size + 1).all());
+        boolean hasNext = rows.size() > size;
+        List<User> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? UserCursor.of(page.get(page.size() - 1), sortField, direction).encode() : null;
+
+        long total = query.isExactCount() ? userRepository.count(filters) : cachedCount(query, filters);
+        return new CursorPageDTO<>(page.stream().map(UserMapper::responseToUser).toList(),
+                nextCursor, hasNext, total, query.isExactCount());
+    }
+
+    // Counts are shared per filter combination for a short TTL, so paging never triggers COUNT(*) per request
+    private long cachedCount(UserCursorQueryDTO query, Specification<User> filters) {
+        String key = "verified=" + query.getEmailVerified() + ":enabled=" + query.getAccountEnabled();
+        Cache counts = cacheManager.getCache(UserResponseCache.USER_COUNTS);
+        if (counts == null) {
+            return userRepository.count(filters);
+        }
+        Number count = counts.get(key, () -> (Number) userRepository.count(filters));
+        return count != null ? count.longValue() : 0L;
     }
 
-    @Cacheable(value = "users", key = "#id")
+    // Streams every user straight to the output; each row is detached once written so heap use stays flat
+    @Transactional(readOnly = true)
+    @Override
+    public void exportUsers(ExportFormat format, OutputStream outputStream) throws IOException {
+        log.info("Service:: Exporting all users as {}", format);
+        long exported = 0;
+        try (Stream<User> users = userRepository.streamAllByOrderById()) {
+            Iterator<User> iterator = users.iterator();
+            if (format == ExportFormat.CSV) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                writer.write("id,name,email,emailVerified,accountEnabled,roles,createdAt,updatedAt\n");
+                while (iterator.hasNext()) {
+                    User user = iterator.next();
+                    writeCsvRow(writer, UserMapper.responseToUser(user));
+                    entityManager.detach(user);
+                    exported++;
+                }
+                writer.flush();
+            } else {
+                SequenceWriter writer = objectMapper.writerFor(UserResponseDTO.class)
+                        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .withRootValueSeparator("\n")
+                        .writeValues(outputStream);
+                while (iterator.hasNext()) {
+                    User user = iterator.next();
+                    writer.write(UserMapper.responseToUser(user));
+                    entityManager.detach(user);
+                    exported++;
+                }
+                writer.flush();
+                outputStream.write('\n');
+            }
+        }
+        outputStream.flush();
+        log.info("Service:: Exported {} users", exported);
+    }
+
+    private static void writeCsvRow(Writer writer, UserResponseDTO dto) throws IOException {
+        writer.write(String.valueOf(dto.getId()));
+        writer.write(',');
+        writer.write(csvField(dto.getName()));
+        writer.write(',');
+        writer.write(csvField(dto.getEmail()));
+        writer.write(',');
+        writer.write(String.valueOf(dto.isEmailVerified()));
+        writer.write(',');
+        writer.write(String.valueOf(dto.isAccountEnabled()));
+        writer.write(',');
+        writer.write(dto.getRoles().stream().map(Enum::name).sorted().collect(Collectors.joining(";")));
+        writer.write(',');
+        writer.write(String.valueOf(dto.getCreatedAt()));
+        writer.write(',');
+        writer.write(String.valueOf(dto.getUpdatedAt()));
+        writer.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // sync = true routes misses through the cache's coalescing loader
+    @Cacheable(value = UserResponseCache.USERS, key = "#id", sync = true)
     @Override
     public UserResponseDTO fetchUser(Long id) {
         log.info("Service:: Fetching user with id: {}", id);
-        User user = userRepository.findById(id).orElseThrow(
+        return userRepository.findResponseById(id).orElseThrow(
                 () -> new UserNotFoundException("User not found with id: " + id)
         );
-        return UserMapper.responseToUser(user);
     }
 
-    @Cacheable(value = "usersByEmail", key = "#email")
+    @Cacheable(value = UserResponseCache.USERS_BY_EMAIL, key = "#email", sync = true)
     @Override
     public UserResponseDTO fetchUserByEmail(String email) {
         log.info("Service:: Fetching user with email: {}", email);
-        User user = userRepository.findByEmail(email).orElseThrow(
+        return userRepository.findResponseByEmail(email).orElseThrow(
                 () -> new UserNotFoundException("User not found with email: " + email)
         );
-        return UserMapper.responseToUser(user);
     }
 
-    @CacheEvict(value = {"users", "usersByEmail"}, allEntries = true)
+    @Caching(put = {
+            @CachePut(value = UserResponseCache.USERS, key = "#result.id"),
+            @CachePut(value = UserResponseCache.USERS_BY_EMAIL, key = "#result.email")
+    })
     @Override
     public UserResponseDTO promoteUser(Long id, User.Role role) {
         log.info("Service:: Promoting user with id: {}, to role: {}", id, role);
@@ -61,7 +231,17 @@ public class AdminServiceImpl implements AdminService {
         );
         user.getRoles().add(role);
         User promotedUser = userRepository.save(user);
+        userDetailsCache.invalidate(promotedUser.getId(), promotedUser.getEmail());
         log.info("Service:: Promoted user: {}", promotedUser);
         return UserMapper.responseToUser(promotedUser);
     }
+
+    @Override
+    public void forceLogout(Long id) {
+        log.info("Service:: Revoking all tokens of user with id: {}", id);
+        User user = userRepository.findById(id).orElseThrow(
+                () -> new UserNotFoundException("User not found with id: " + id)
+        );
+        tokenRevocationService.revokeUser(user.getEmail());
+    }
 }
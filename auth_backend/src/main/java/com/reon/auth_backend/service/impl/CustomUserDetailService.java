@@ -1,23 +1,56 @@
 package com.reon.auth_backend.service.impl;
 
+import com.reon.auth_backend.cache.UserDetailsCache;
+import com.reon.auth_backend.mapper.UserMapper;
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.model.UserPrincipal;
 import com.reon.auth_backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
-public class CustomUserDetailService implements UserDetailsService {
+public class CustomUserDetailService implements UserDetailsService, UserDetailsPasswordService {
+    private final Logger log = LoggerFactory.getLogger(CustomUserDetailService.class);
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
-    public CustomUserDetailService(UserRepository userRepository) {
+    public CustomUserDetailService(UserRepository userRepository, UserDetailsCache userDetailsCache) {
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
     }
 
+    // Used for password logins, which need the stored hash; served by the second-level cache after the first load
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        return userRepository.findByEmail(email).orElseThrow(
+        return userRepository.findByNaturalEmail(email).orElseThrow(
                 () -> new UsernameNotFoundException("User not found with email: " + email)
         );
     }
+
+    // Called by the authentication provider after a login whose stored hash used an outdated algorithm or cost.
+    // The user is updated through the entity (usually a second-level cache hit) so only its own cache entry
+    // changes; a bulk update would drop the whole region on every rehash.
+    @Transactional
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        log.info("Service:: Upgrading password hash for {}", user.getUsername());
+        User entity = userRepository.findByNaturalEmail(user.getUsername()).orElseThrow(
+                () -> new UsernameNotFoundException("User not found with email: " + user.getUsername())
+        );
+        entity.setPassword(newPassword);
+        return entity;
+    }
+
+    // Used for token-authenticated requests; served from the two-tier user details cache
+    public UserPrincipal loadPrincipal(String email) throws UsernameNotFoundException {
+        return userDetailsCache.get(email, key -> UserMapper.toPrincipal(userRepository.findByNaturalEmail(key).orElseThrow(
+                () -> new UsernameNotFoundException("User not found with email: " + key)
+        )));
+    }
 }
@@ -0,0 +1,296 @@
+package com.reon.auth_backend.service.impl;
+
+import com.reon.auth_backend.model.EmailOutbox;
+import com.reon.auth_backend.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the email outbox in batches. Each batch is claimed with a short lease, split across a
+ * bounded worker pool and sent over one SMTP connection per worker. Failed mails are retried
+ * with exponential backoff until {@code email.outbox.max-attempts} is reached.
+ */
+@Component
+public class EmailDispatcher {
+    private final Logger log = LoggerFactory.getLogger(EmailDispatcher.class);
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor coordinator;
+    private final ThreadPoolTaskExecutor workers;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong pending = new AtomicLong();
+    private volatile boolean stopping;
+
+    private final String emailSender;
+    private final int batchSize;
+    private final int workerCount;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final Duration shutdownTimeout;
+    private final Duration retention;
+    private final MeterRegistry meterRegistry;
+    private final Timer sendTimer;
+
+    public EmailDispatcher(EmailOutboxRepository emailOutboxRepository, JavaMailSender mailSender,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${spring.emailSender}") String emailSender,
+                           @Value("${email.outbox.batch-size:50}") int batchSize,
+                           @Value("${email.outbox.workers:4}") int workerCount,
+                           @Value("${email.outbox.max-attempts:8}") int maxAttempts,
+                           @Value("${email.outbox.initial-backoff:30s}") Duration initialBackoff,
+                           @Value("${email.outbox.max-backoff:30m}") Duration maxBackoff,
+                           @Value("${email.outbox.lease:5m}") Duration lease,
+                           @Value("${email.outbox.shutdown-timeout:30s}") Duration shutdownTimeout,
+                           @Value("${email.outbox.retention:7d}") Duration retention,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                           MeterRegistry meterRegistry) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.emailSender = emailSender;
+        this.batchSize = batchSize;
+        this.workerCount = workerCount;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.shutdownTimeout = shutdownTimeout;
+        this.retention = retention;
+        this.meterRegistry = meterRegistry;
+        // One sample per SMTP connection, i.e. per chunk sent by a worker
+        this.sendTimer = Timer.builder("email.send").publishPercentileHistogram().register(meterRegistry);
+        // Queue depth is recounted on a schedule rather than per scrape, see refreshPendingCount()
+        Gauge.builder("email.outbox.pending", pending, AtomicLong::get).register(meterRegistry);
+
+        // One queued wake-up is enough: a running drain picks up everything committed before it polls again
+        this.coordinator = new ThreadPoolTaskExecutor();
+        coordinator.setCorePoolSize(1);
+        coordinator.setMaxPoolSize(1);
+        coordinator.setQueueCapacity(1);
+        coordinator.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        coordinator.setThreadNamePrefix("email-dispatch-");
+        if (virtualThreads) {
+            coordinator.setThreadFactory(Thread.ofVirtual().name("email-dispatch-", 0).factory());
+        }
+        coordinator.initialize();
+
+        this.workers = new ThreadPoolTaskExecutor();
+        workers.setCorePoolSize(workerCount);
+        workers.setMaxPoolSize(workerCount);
+        workers.setQueueCapacity(workerCount);
+        workers.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        workers.setThreadNamePrefix("email-worker-");
+        // Virtual workers still go through the fixed-size pool, which caps concurrent SMTP connections
+        if (virtualThreads) {
+            workers.setThreadFactory(Thread.ofVirtual().name("email-worker-", 0).factory());
+        }
+        workers.initialize();
+    }
+
+    // Called after a transaction that queued mail commits, so delivery starts without waiting for the poller
+    public void wakeUp() {
+        if (!stopping) {
+            coordinator.execute(this::drain);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:2000}")
+    public void poll() {
+        if (!stopping) {
+            drain();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.purge-interval-ms:3600000}")
+    public void purgeSent() {
+        Integer purged = transactionTemplate.execute(status -> emailOutboxRepository.deleteByStatusAndUpdatedAtBefore(
+                EmailOutbox.Status.SENT, LocalDateTime.now().minus(retention)));
+        if (purged != null && purged > 0) {
+            log.info("Email:: Purged {} sent outbox rows", purged);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.pending-gauge-interval-ms:30000}")
+    public void refreshPendingCount() {
+        pending.set(emailOutboxRepository.countByStatus(EmailOutbox.Status.PENDING));
+    }
+
+    // Sends batches until the outbox has nothing due; returns the number of mails processed
+    public int drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return 0;
+        }
+        int processed = 0;
+        try {
+            List<EmailOutbox> batch;
+            do {
+                batch = claimBatch();
+                if (!batch.isEmpty()) {
+                    send(batch);
+                    processed += batch.size();
+                }
+            } while (batch.size() == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Email:: Outbox drain failed", e);
+        } finally {
+            draining.set(false);
+        }
+        return processed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        coordinator.shutdown();
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        // Mails committed just before shutdown are still delivered, within the configured timeout
+        while (System.nanoTime() < deadline) {
+            if (draining.get()) {
+                pause();
+            } else if (drain() == 0) {
+                break;
+            }
+        }
+        workers.shutdown();
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<EmailOutbox> claimBatch() {
+        List<EmailOutbox> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<EmailOutbox> due = emailOutboxRepository.findDispatchable(
+                    EmailOutbox.Status.PENDING, EmailOutbox.Status.SENDING, now, Limit.of(batchSize));
+            for (EmailOutbox email : due) {
+                email.setStatus(EmailOutbox.Status.SENDING);
+                email.setLockedUntil(now.plus(lease));
+            }
+            return emailOutboxRepository.saveAll(due);
+        });
+        return batch != null ? batch : List.of();
+    }
+
+    private void send(List<EmailOutbox> batch) {
+        int chunkSize = Math.max(1, (batch.size() + workerCount - 1) / workerCount);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += chunkSize) {
+            List<EmailOutbox> chunk = batch.subList(from, Math.min(from + chunkSize, batch.size()));
+            futures.add(CompletableFuture.runAsync(() -> sendChunk(chunk), workers));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void sendChunk(List<EmailOutbox> chunk) {
+        Map<SimpleMailMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        for (EmailOutbox email : chunk) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setFrom(emailSender);
+            message.setTo(email.getRecipient());
+            message.setSubject(email.getSubject());
+            message.setText(email.getBody());
+            messages.put(message, email);
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        long start = System.nanoTime();
+        try {
+            // A single send call delivers the whole chunk over one SMTP connection
+            mailSender.send(messages.keySet().toArray(SimpleMailMessage[]::new));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages().isEmpty() ? allFailed(messages.keySet(), e) : e.getFailedMessages();
+        } catch (MailException e) {
+            failures = allFailed(messages.keySet(), e);
+        } finally {
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        Map<Object, Exception> failed = failures;
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Map.Entry<SimpleMailMessage, EmailOutbox> entry : messages.entrySet()) {
+                EmailOutbox email = entry.getValue();
+                Exception error = failed.get(entry.getKey());
+                if (error == null) {
+                    markSent(email);
+                } else {
+                    markFailed(email, error);
+                }
+            }
+            emailOutboxRepository.saveAll(chunk);
+        });
+    }
+
+    private static Map<Object, Exception> allFailed(Set<SimpleMailMessage> messages, Exception e) {
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        messages.forEach(message -> failures.put(message, e));
+        return failures;
+    }
+
+    private void markSent(EmailOutbox email) {
+        meterRegistry.counter("email.delivered", "purpose", email.getPurpose().name(), "result", "sent").increment();
+        if (email.getCreatedAt() != null) {
+            // Time from enqueue to accepted by SMTP, including retries
+            meterRegistry.timer("email.delivery.delay", "purpose", email.getPurpose().name())
+                    .record(Duration.between(email.getCreatedAt(), LocalDateTime.now()));
+        }
+        email.setStatus(EmailOutbox.Status.SENT);
+        email.setAttempts(email.getAttempts() + 1);
+        email.setLockedUntil(null);
+        email.setLastError(null);
+    }
+
+    private void markFailed(EmailOutbox email, Exception error) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        email.setLockedUntil(null);
+        String message = String.valueOf(error.getMessage());
+        email.setLastError(message.length() > 512 ? message.substring(0, 512) : message);
+        if (attempts >= maxAttempts) {
+            meterRegistry.counter("email.delivered", "purpose", email.getPurpose().name(), "result", "failed").increment();
+            email.setStatus(EmailOutbox.Status.FAILED);
+            log.error("Email:: Giving up on {} email to {} after {} attempts", email.getPurpose(), email.getRecipient(), attempts);
+            return;
+        }
+        meterRegistry.counter("email.delivered", "purpose", email.getPurpose().name(), "result", "retry").increment();
+        email.setStatus(EmailOutbox.Status.PENDING);
+        email.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+        log.warn("Email:: Sending {} email to {} failed (attempt {}): {}", email.getPurpose(), email.getRecipient(), attempts, message);
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
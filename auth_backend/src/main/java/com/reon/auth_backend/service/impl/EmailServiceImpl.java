@@ -1,47 +1,51 @@
 package com.reon.auth_backend.service.impl;
 
+import com.reon.auth_backend.cache.AfterCommit;
+import com.reon.auth_backend.model.EmailOutbox;
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.repository.EmailOutboxRepository;
 import com.reon.auth_backend.service.EmailService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes outgoing mail to the outbox table in the caller's transaction;
+ * {@link EmailDispatcher} delivers it once that transaction has committed.
+ */
 @Service
 public class EmailServiceImpl implements EmailService {
-    private final JavaMailSender mailSender;
+    private final Logger log = LoggerFactory.getLogger(EmailServiceImpl.class);
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailDispatcher emailDispatcher;
 
-    @Value("${spring.emailSender}")
-    private String emailSender;
+    @Value("${frontend.url}")
+    private String frontendUrl;
 
-    public EmailServiceImpl(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailServiceImpl(EmailOutboxRepository emailOutboxRepository, EmailDispatcher emailDispatcher) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailDispatcher = emailDispatcher;
     }
 
     @Override
     public void sendWelcomeEmail(String recipient, String name) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(emailSender);
-        message.setTo(recipient);
-        message.setSubject("Welcome to Auth Module!");
-
-        message.setText("Hi " + name + ",\n\n" +
+        String emailBody = "Hi " + name + ",\n\n" +
                 "Welcome aboard!\n\n" +
                 "You’ve successfully joined the Auth Module – a secure and customizable authentication system built with Spring Boot and React.\n" +
                 "With features like JWT-based login, OTP verification, and blazing-fast Redis caching, you're all set to integrate secure auth into your applications.\n\n" +
                 "Need help getting started? Feel free to reach out.\n\n" +
                 "Best,\n" +
-                "The Auth Module Team");
+                "The Auth Module Team";
 
-        mailSender.send(message);
+        enqueue(recipient, EmailOutbox.Purpose.WELCOME, "Welcome to Auth Module!", emailBody);
     }
 
     @Override
     public void verificationOTP(String recipient, String name, String otp) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(emailSender);
-        message.setTo(recipient);
-        message.setSubject("Verify Your Auth Module Account");
-
         String emailBody = "Hello " + name + ",\n\n"
                 + "To complete your signup, please use the following One-Time Password (OTP): " + otp + "\n"
                 + "This OTP is valid for 15 minutes.\n\n"
@@ -49,17 +53,11 @@ public class EmailServiceImpl implements EmailService {
                 + "Cheers,\n"
                 + "The Auth Module Team";
 
-        message.setText(emailBody);
-        mailSender.send(message);
+        enqueue(recipient, EmailOutbox.Purpose.ACCOUNT_VERIFICATION, "Verify Your Auth Module Account", emailBody);
     }
 
     @Override
     public void resetPassword(String recipient, String name, String otp) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(emailSender);
-        message.setTo(recipient);
-        message.setSubject("Reset Your Auth Module Password");
-
         String emailBody = "Hi " + name + ",\n\n"
                 + "We received a request to reset your Auth Module password.\n"
                 + "Your OTP for resetting is: " + otp + "\n"
@@ -68,25 +66,56 @@ public class EmailServiceImpl implements EmailService {
                 + "Regards,\n"
                 + "The Auth Module Team";
 
-        message.setText(emailBody);
-        mailSender.send(message);
+        enqueue(recipient, EmailOutbox.Purpose.PASSWORD_RESET_OTP, "Reset Your Auth Module Password", emailBody);
     }
 
     @Override
     public void passwordReset(String recipient, String name) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(emailSender);
-        message.setTo(recipient);
-        message.setSubject("Your Auth Module Password Was Reset");
-
         String emailBody = "Hi " + name + ",\n\n"
                 + "Just a heads-up – your password was successfully updated.\n"
                 + "If this wasn’t you, please contact our support team immediately.\n\n"
                 + "Stay secure,\n"
                 + "The Auth Module Team";
 
-        message.setText(emailBody);
-        mailSender.send(message);
+        enqueue(recipient, EmailOutbox.Purpose.PASSWORD_RESET_CONFIRMATION, "Your Auth Module Password Was Reset", emailBody);
     }
 
+    // Imported accounts are new, so there is no pending mail to replace and the rows are saved as one batch
+    @Override
+    public void invitations(List<User> users) {
+        List<EmailOutbox> emails = new ArrayList<>(users.size());
+        for (User user : users) {
+            String emailBody = "Hi " + user.getName() + ",\n\n"
+                    + "An Auth Module account has been created for you with this email address.\n"
+                    + "To choose your password, use \"Forgot password\" at " + frontendUrl + " and follow the emailed code.\n\n"
+                    + "If you weren't expecting this, you can ignore this message.\n\n"
+                    + "Welcome,\n"
+                    + "The Auth Module Team";
+            EmailOutbox email = new EmailOutbox();
+            email.setRecipient(user.getEmail());
+            email.setPurpose(EmailOutbox.Purpose.INVITATION);
+            email.setSubject("You're invited to Auth Module");
+            email.setBody(emailBody);
+            emails.add(email);
+        }
+        emailOutboxRepository.saveAll(emails);
+        log.info("Service:: Queued {} invitation emails", emails.size());
+
+        AfterCommit.run(emailDispatcher::wakeUp);
+    }
+
+    // A still pending mail of the same purpose to the same recipient is replaced rather than duplicated
+    private void enqueue(String recipient, EmailOutbox.Purpose purpose, String subject, String body) {
+        EmailOutbox email = emailOutboxRepository
+                .findFirstByRecipientAndPurposeAndStatus(recipient, purpose, EmailOutbox.Status.PENDING)
+                .orElseGet(EmailOutbox::new);
+        email.setRecipient(recipient);
+        email.setPurpose(purpose);
+        email.setSubject(subject);
+        email.setBody(body);
+        emailOutboxRepository.save(email);
+        log.info("Service:: Queued {} email for {}", purpose, recipient);
+
+        AfterCommit.run(emailDispatcher::wakeUp);
+    }
 }
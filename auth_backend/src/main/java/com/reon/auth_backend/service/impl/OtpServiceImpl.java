@@ -1,31 +1,57 @@
 package com.reon.auth_backend.service.impl;
 
+import com.reon.auth_backend.cache.AfterCommit;
+import com.reon.auth_backend.cache.EmailIndex;
+import com.reon.auth_backend.cache.UserDetailsCache;
+import com.reon.auth_backend.cache.UserResponseCache;
 import com.reon.auth_backend.exceptions.InvalidOTPException;
 import com.reon.auth_backend.exceptions.OTPExpiredException;
 import com.reon.auth_backend.exceptions.UserNotFoundException;
+import com.reon.auth_backend.jwt.TokenRevocationService;
 import com.reon.auth_backend.model.User;
-import com.reon.auth_backend.model.VerificationToken;
+import com.reon.auth_backend.repository.OtpRepository;
 import com.reon.auth_backend.repository.UserRepository;
 import com.reon.auth_backend.service.EmailService;
 import com.reon.auth_backend.service.OtpService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.security.SecureRandom;
+import java.time.Duration;
 
 @Service
 public class OtpServiceImpl implements OtpService {
     private final Logger log = LoggerFactory.getLogger(OtpServiceImpl.class);
     private final UserRepository userRepository;
+    private final OtpRepository otpRepository;
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
-
-    public OtpServiceImpl(UserRepository userRepository, EmailService emailService, PasswordEncoder passwordEncoder) {
+    private final UserDetailsCache userDetailsCache;
+    private final UserResponseCache userResponseCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final EmailIndex emailIndex;
+
+    @Value("${otp.ttl:15m}")
+    private Duration otpTtl;
+
+    public OtpServiceImpl(UserRepository userRepository, OtpRepository otpRepository, EmailService emailService,
+                          PasswordEncoder passwordEncoder, UserDetailsCache userDetailsCache,
+                          UserResponseCache userResponseCache, TokenRevocationService tokenRevocationService,
+                          EmailIndex emailIndex) {
         this.userRepository = userRepository;
+        this.otpRepository = otpRepository;
         this.emailService = emailService;
         this.passwordEncoder = passwordEncoder;
+        this.userDetailsCache = userDetailsCache;
+        this.userResponseCache = userResponseCache;
+        this.tokenRevocationService = tokenRevocationService;
+        this.emailIndex = emailIndex;
     }
 
     // Generate 6-digits OTP
@@ -35,68 +61,45 @@ public class OtpServiceImpl implements OtpService {
         return String.valueOf(otp);
     }
 
+    @Transactional
     @Override
     public void sendVerificationEmail(String email) {
-        // Check if user exist
-        User user = userRepository.findByEmail(email).orElseThrow(
+        // Check if user exist; unknown emails are turned away by the email index without a query
+        if (!emailIndex.mightContain(email)) {
+            throw new UserNotFoundException("User not found");
+        }
+        String name = userRepository.findNameByEmail(email).orElseThrow(
                 () -> new UserNotFoundException("User not found")
         );
 
-        VerificationToken verificationToken = new VerificationToken();
-
-        // Assign an OTP
+        // Assign an OTP, replacing any previous one; it expires with the redis key
         String otp = generateOTP();
-        verificationToken.setToken(otp);
-
-        // Set expiry time
-        long otpExpiryTime = System.currentTimeMillis() +  (15 * 60 * 1000);
-        verificationToken.setExpiryDate(otpExpiryTime);
-
-        verificationToken.setUser(user);
-
-        // save otp to database
-        user.setToken(verificationToken);
-        userRepository.save(user);
+        otpRepository.save(OtpRepository.Purpose.ACCOUNT_VERIFICATION, email, otp, otpTtl);
 
         try {
-            emailService.verificationOTP(email, user.getName(), otp);
+            emailService.verificationOTP(email, name, otp);
         } catch (Exception e) {
             log.error(e.getMessage());
             throw new RuntimeException(e);
         }
     }
 
+    @Transactional
     @Override
     public void verifyAccount(String email, String verificationCode) {
-        // Check if user exist
-        User user = userRepository.findByEmail(email).orElseThrow(
+        consumeOtp(OtpRepository.Purpose.ACCOUNT_VERIFICATION, email, verificationCode);
+
+        // Changed through the entity so the second-level cache replaces only this user's entry
+        User user = userRepository.findByNaturalEmail(email).orElseThrow(
                 () -> new UserNotFoundException("User not found")
         );
-
-        VerificationToken verificationToken = user.getToken();
-
-        if (verificationToken == null || verificationToken.getToken() == null) {
-            throw new InvalidOTPException("No OTP found or it was already used.");
-        }
-
-        if (!verificationToken.getToken().equals(verificationCode)){
-            throw new InvalidOTPException("OTP does not match");
-        }
-
-        if (verificationToken.getExpiryDate() < System.currentTimeMillis()){
-            throw new OTPExpiredException("OTP has expired");
-        }
-
         user.setEmailVerified(true);
         user.setAccountEnabled(true);
-
-        verificationToken.setToken(null);
-        verificationToken.setExpiryDate(0L);
-
-        userRepository.save(user);
+        userDetailsCache.invalidate(user.getId(), email);
+        userResponseCache.evict(user.getId(), email);
 
         try {
-            log.info("Service:: Sending welcome email to user {}", user);
+            log.info("Service:: Sending welcome email to user {}", email);
             emailService.sendWelcomeEmail(email, user.getName());
             log.info("Service:: Welcome email sent");
         } catch (Exception e) {
@@ -105,27 +108,22 @@ public class OtpServiceImpl implements OtpService {
         }
     }
 
+    @Transactional
     @Override
     public void sendResetPasswordOTP(String email) {
-        User user = userRepository.findByEmail(email).orElseThrow(
+        if (!emailIndex.mightContain(email)) {
+            throw new UserNotFoundException("User not found");
+        }
+        String name = userRepository.findNameByEmail(email).orElseThrow(
                 () -> new UserNotFoundException("User not found")
         );
 
-        VerificationToken verificationToken = new VerificationToken();
-
         String resetOTP = generateOTP();
-        verificationToken.setToken(resetOTP);
-
-        long resetOTPExpiry = System.currentTimeMillis() +  (15 * 60 * 1000);
-        verificationToken.setExpiryDate(resetOTPExpiry);
-
-        verificationToken.setUser(user);
-        user.setToken(verificationToken);
-        userRepository.save(user);
+        otpRepository.save(OtpRepository.Purpose.PASSWORD_RESET, email, resetOTP, otpTtl);
 
         try {
-            log.info("Service:: Sending reset password email to user {}", user);
-            emailService.resetPassword(email, user.getName(), resetOTP);
+            log.info("Service:: Sending reset password email to user {}", email);
+            emailService.resetPassword(email, name, resetOTP);
             log.info("Service:: Reset Password email sent.");
         } catch (Exception e) {
             log.error(e.getMessage());
@@ -135,49 +133,24 @@ public class OtpServiceImpl implements OtpService {
 
     @Override
     public void verifyResetPasswordOTP(String email, String verificationCode) {
-        User user = userRepository.findByEmail(email).orElseThrow(
-                () -> new UserNotFoundException("User not found with email " + email)
-        );
-
-        VerificationToken verificationToken = user.getToken();
-
-        if (verificationToken == null || verificationToken.getToken() == null) {
-            throw new InvalidOTPException("No OTP found or it was already used.");
-        }
-
-        if (!verificationToken.getToken().equals(verificationCode)){
-            throw new InvalidOTPException("OTP does not match");
-        }
-
-        if (verificationToken.getExpiryDate() < System.currentTimeMillis()){
-            throw new OTPExpiredException("OTP has expired");
-        }
+        checkOtp(otpRepository.verify(OtpRepository.Purpose.PASSWORD_RESET, email, verificationCode));
     }
 
+    @Transactional
     @Override
     public void resetPassword(String email, String verificationCode, String newPassword) {
-        User user = userRepository.findByEmail(email).orElseThrow(
+        consumeOtp(OtpRepository.Purpose.PASSWORD_RESET, email, verificationCode);
+
+        User user = userRepository.findByNaturalEmail(email).orElseThrow(
                 () -> new UserNotFoundException("User not found with email " + email)
         );
 
-        VerificationToken verificationToken = user.getToken();
-        if (verificationToken == null || verificationToken.getToken() == null) {
-            throw new InvalidOTPException("No OTP found or it was already used.");
-        }
-
-        if (!verificationToken.getToken().equals(verificationCode)){
-            throw new InvalidOTPException("OTP does not match");
-        }
-
-        if (verificationToken.getExpiryDate() < System.currentTimeMillis()){
-            throw new OTPExpiredException("OTP has expired");
-        }
-
-        verificationToken.setToken(null);
-        verificationToken.setExpiryDate(0L);
-
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        userDetailsCache.invalidate(user.getId(), email);
+        userResponseCache.evict(user.getId(), email);
+        // Sessions opened with the old password end once the new one is committed
+        AfterCommit.run(() -> tokenRevocationService.revokeUser(email));
 
         try {
             log.info("Service:: Sending password reset success acknowledgement email to user {}", user);
@@ -188,4 +161,34 @@ public class OtpServiceImpl implements OtpService {
             throw new RuntimeException(e);
         }
     }
-}
\ No newline at end of file
+
+    // Used up before the database work, so two requests cannot both use one code; given back if that work rolls back
+    private void consumeOtp(OtpRepository.Purpose purpose, String email, String otp) {
+        OtpRepository.Consumption consumption = otpRepository.consume(purpose, email, otp);
+        checkOtp(consumption.result());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    otpRepository.restore(purpose, email, otp, consumption.remaining());
+                } catch (RuntimeException e) {
+                    log.warn("Service:: Could not restore the {} OTP of {} after a rollback: {}", purpose, email, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static void checkOtp(OtpRepository.Result result) {
+        switch (result) {
+            case MISSING -> throw new OTPExpiredException("OTP has expired or was already used");
+            case MISMATCH -> throw new InvalidOTPException("OTP does not match");
+            case MATCHED -> { }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.reon.auth_backend.service.impl;
+
+import com.reon.auth_backend.cache.UserDetailsCache;
+import com.reon.auth_backend.dto.IntrospectionDTO;
+import com.reon.auth_backend.jwt.JwtUtils;
+import com.reon.auth_backend.jwt.TokenPrincipalCache;
+import com.reon.auth_backend.jwt.TokenRevocationService;
+import com.reon.auth_backend.model.UserPrincipal;
+import com.reon.auth_backend.service.TokenIntrospectionService;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * Token checks for gateways and sidecars. Principals come from the token cache or the Redis user details
+ * entry; revocation is answered by the local filters and reactive Redis reads. Only when both caches miss
+ * is the user loaded, on a bounded elastic thread, exactly as the authentication filter would; with
+ * {@code jwt.stateless-principal} the claims are used instead. A token whose user no longer exists is
+ * reported inactive and nothing is cached for it.
+ */
+@Service
+public class TokenIntrospectionServiceImpl implements TokenIntrospectionService {
+    private static final Mono<IntrospectionDTO> INACTIVE = Mono.just(IntrospectionDTO.INACTIVE);
+
+    private final Logger log = LoggerFactory.getLogger(TokenIntrospectionServiceImpl.class);
+    private final JwtUtils jwtUtils;
+    private final TokenPrincipalCache tokenPrincipalCache;
+    private final UserDetailsCache userDetailsCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final CustomUserDetailService customUserDetailService;
+    private final boolean statelessPrincipal;
+    private final Counter activeTokens;
+    private final Counter inactiveTokens;
+
+    public TokenIntrospectionServiceImpl(JwtUtils jwtUtils, TokenPrincipalCache tokenPrincipalCache,
+                                         UserDetailsCache userDetailsCache,
+                                         TokenRevocationService tokenRevocationService,
+                                         CustomUserDetailService customUserDetailService,
+                                         @Value("${jwt.stateless-principal:false}") boolean statelessPrincipal,
+                                         MeterRegistry meterRegistry) {
+        this.jwtUtils = jwtUtils;
+        this.tokenPrincipalCache = tokenPrincipalCache;
+        this.userDetailsCache = userDetailsCache;
+        this.tokenRevocationService = tokenRevocationService;
+        this.customUserDetailService = customUserDetailService;
+        this.statelessPrincipal = statelessPrincipal;
+        this.activeTokens = Counter.builder("auth.introspect").tag("result", "active").register(meterRegistry);
+        this.inactiveTokens = Counter.builder("auth.introspect").tag("result", "inactive").register(meterRegistry);
+    }
+
+    @Override
+    public Mono<IntrospectionDTO> introspect(String token) {
+        if (token == null || token.isBlank()) {
+            return inactive();
+        }
+        TokenPrincipalCache.CachedPrincipal cached = tokenPrincipalCache.get(token);
+        Mono<TokenPrincipalCache.CachedPrincipal> resolved;
+        if (cached != null) {
+            resolved = Mono.just(cached);
+        } else {
+            long generation = tokenPrincipalCache.generation();
+            Claims claims;
+            try {
+                claims = jwtUtils.parseClaims(token);
+            } catch (RuntimeException e) {
+                log.debug("Service:: Introspected an invalid token: {}", e.getMessage());
+                return inactive();
+            }
+            // The cached entry reflects role and account changes; claims alone would outlive a deletion or demotion
+            resolved = userDetailsCache.getReactive(claims.getSubject())
+                    .switchIfEmpty(Mono.defer(() -> loadPrincipal(claims)))
+                    .map(principal -> tokenPrincipalCache.put(token, principal, claims, generation));
+        }
+        return resolved
+                .filter(entry -> entry.principal() instanceof UserPrincipal principal && principal.isEnabled())
+                .flatMap(entry -> tokenRevocationService
+                        .isRevokedReactive(entry.tokenId(), entry.principal().getUsername(), entry.issuedAtMillis())
+                        .flatMap(revoked -> revoked ? inactive() : Mono.just(active(entry))))
+                .switchIfEmpty(inactive());
+    }
+
+    // Answers come back in request order; tokens are checked concurrently
+    @Override
+    public Mono<List<IntrospectionDTO>> introspectAll(List<String> tokens) {
+        return Flux.fromIterable(tokens).flatMapSequential(this::introspect).collectList();
+    }
+
+    private Mono<UserPrincipal> loadPrincipal(Claims claims) {
+        if (statelessPrincipal) {
+            return Mono.fromSupplier(() -> jwtUtils.toPrincipal(claims));
+        }
+        return Mono.fromCallable(() -> customUserDetailService.loadPrincipal(claims.getSubject()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    if (!(e instanceof UsernameNotFoundException)) {
+                        log.warn("Service:: Could not load {} for introspection: {}", claims.getSubject(), e.getMessage());
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    private IntrospectionDTO active(TokenPrincipalCache.CachedPrincipal entry) {
+        activeTokens.increment();
+        UserPrincipal principal = (UserPrincipal) entry.principal();
+        return new IntrospectionDTO(true, principal.getId(), principal.getEmail(), principal.getRoles(),
+                entry.expiresAtMillis() / 1000);
+    }
+
+    private Mono<IntrospectionDTO> inactive() {
+        return INACTIVE.doOnNext(ignored -> inactiveTokens.increment());
+    }
+}
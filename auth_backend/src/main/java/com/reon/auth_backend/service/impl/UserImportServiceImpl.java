@@ -0,0 +1,278 @@
+package com.reon.auth_backend.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reon.auth_backend.cache.EmailIndex;
+import com.reon.auth_backend.cache.UserResponseCache;
+import com.reon.auth_backend.dto.ExportFormat;
+import com.reon.auth_backend.dto.ImportReportDTO;
+import com.reon.auth_backend.dto.ImportRowErrorDTO;
+import com.reon.auth_backend.dto.UserRequestDTO;
+import com.reon.auth_backend.exceptions.InvalidImportFileException;
+import com.reon.auth_backend.mapper.UserMapper;
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.repository.UserRepository;
+import com.reon.auth_backend.security.PasswordEncoders;
+import com.reon.auth_backend.security.PasswordHashingEngine;
+import com.reon.auth_backend.service.EmailService;
+import com.reon.auth_backend.service.UserImportService;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Creates accounts from a streamed CSV or NDJSON file with {@code name}, {@code email} and an optional
+ * {@code password} per row. Rows are processed in chunks: duplicates are found with one query per
+ * chunk, passwords are hashed in parallel on the hashing pool, and users plus their invitation emails are
+ * inserted in one transaction per chunk, the invitations in JDBC batches. Rows without a password get an account that
+ * cannot log in until its owner sets a password through the reset flow the invitation points to.
+ */
+@Service
+public class UserImportServiceImpl implements UserImportService {
+    private static final int MAX_REPORTED_ERRORS = 10_000;
+
+    private final Logger log = LoggerFactory.getLogger(UserImportServiceImpl.class);
+    private final UserRepository userRepository;
+    private final PasswordHashingEngine passwordHashingEngine;
+    private final EmailService emailService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final EmailIndex emailIndex;
+    private final int chunkSize;
+
+    public UserImportServiceImpl(UserRepository userRepository, PasswordHashingEngine passwordHashingEngine,
+                                 EmailService emailService, Validator validator, ObjectMapper objectMapper,
+                                 CacheManager cacheManager, PlatformTransactionManager transactionManager,
+                                 EntityManager entityManager, EmailIndex emailIndex,
+                                 @Value("${user-import.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.passwordHashingEngine = passwordHashingEngine;
+        this.emailService = emailService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.emailIndex = emailIndex;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public ImportReportDTO importUsers(ExportFormat format, InputStream inputStream) throws IOException {
+        log.info("Service:: Importing users from {}", format);
+        long startedAt = System.nanoTime();
+        ImportReportDTO report = new ImportReportDTO();
+        Set<String> seenEmails = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        Map<String, Integer> csvColumns = format == ExportFormat.CSV ? csvHeader(reader.readLine()) : null;
+        long rowNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            rowNumber++;
+            report.setRows(rowNumber);
+            UserRequestDTO dto;
+            try {
+                dto = csvColumns != null ? csvRow(line, csvColumns) : objectMapper.readValue(line, UserRequestDTO.class);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                reject(report, rowNumber, null, "Unreadable row");
+                continue;
+            }
+            String invalid = validate(dto);
+            if (invalid != null) {
+                reject(report, rowNumber, dto.getEmail(), invalid);
+            } else if (!seenEmails.add(dto.getEmail())) {
+                reject(report, rowNumber, dto.getEmail(), "Duplicate email in file");
+            } else {
+                chunk.add(new Row(rowNumber, dto));
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
+        }
+
+        Cache counts = cacheManager.getCache(UserResponseCache.USER_COUNTS);
+        if (counts != null) {
+            counts.clear();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        log.info("Service:: Imported {} of {} users in {}s ({} rejected)", report.getCreated(), report.getRows(),
+                String.format("%.1f", seconds), report.getRejected());
+        return report;
+    }
+
+    private void importChunk(List<Row> chunk, ImportReportDTO report) {
+        Set<String> existing = userRepository.findExistingEmails(chunk.stream().map(row -> row.dto().getEmail()).toList());
+        List<Row> fresh = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (existing.contains(row.dto().getEmail())) {
+                reject(report, row.number(), row.dto().getEmail(), "Email already registered");
+            } else {
+                fresh.add(row);
+            }
+        }
+
+        List<String> passwords = new ArrayList<>();
+        for (Row row : fresh) {
+            if (row.dto().getPassword() != null) {
+                passwords.add(row.dto().getPassword());
+            }
+        }
+        Iterator<String> hashes = passwordHashingEngine.encodeAll(passwords).iterator();
+        List<String> storedPasswords = new ArrayList<>(fresh.size());
+        for (Row row : fresh) {
+            storedPasswords.add(row.dto().getPassword() != null ? hashes.next() : PasswordEncoders.NO_PASSWORD);
+        }
+
+        try {
+            save(fresh, storedPasswords);
+            report.setCreated(report.getCreated() + fresh.size());
+        } catch (DataIntegrityViolationException e) {
+            // An email was registered concurrently; retry row by row so only that row is rejected
+            for (int i = 0; i < fresh.size(); i++) {
+                Row row = fresh.get(i);
+                try {
+                    save(List.of(row), List.of(storedPasswords.get(i)));
+                    report.setCreated(report.getCreated() + 1);
+                } catch (DataIntegrityViolationException rowException) {
+                    reject(report, row.number(), row.dto().getEmail(), "Email already registered");
+                }
+            }
+        }
+    }
+
+    private void save(List<Row> rows, List<String> storedPasswords) {
+        List<User> users = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            User user = UserMapper.toEntity(rows.get(i).dto());
+            user.setPassword(storedPasswords.get(i));
+            user.setAccountEnabled(true);
+            users.add(user);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Imported users are not about to be read, so their inserts skip the second-level cache
+                entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+                emailIndex.addAll(users.stream().map(User::getEmail).toList());
+                userRepository.saveAll(users);
+                emailService.invitations(users);
+            });
+        } finally {
+            // The request-scoped persistence context outlives the chunk's transaction; without this every
+            // flush would dirty-check all users imported so far
+            entityManager.clear();
+        }
+    }
+
+    // Same rules as registration, except that the password may be left out
+    private String validate(UserRequestDTO dto) {
+        Set<ConstraintViolation<UserRequestDTO>> violations = new HashSet<>();
+        violations.addAll(validator.validateProperty(dto, "name"));
+        violations.addAll(validator.validateProperty(dto, "email"));
+        if (dto.getPassword() != null) {
+            violations.addAll(validator.validateProperty(dto, "password"));
+        }
+        return violations.isEmpty() ? null : violations.iterator().next().getMessage();
+    }
+
+    private static void reject(ImportReportDTO report, long row, String email, String reason) {
+        report.setRejected(report.getRejected() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new ImportRowErrorDTO(row, email, reason));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private static Map<String, Integer> csvHeader(String header) {
+        if (header == null) {
+            throw new InvalidImportFileException("CSV file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = csvFields(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("name") || !columns.containsKey("email")) {
+            throw new InvalidImportFileException("CSV header must contain name and email columns");
+        }
+        return columns;
+    }
+
+    private static UserRequestDTO csvRow(String line, Map<String, Integer> columns) {
+        List<String> fields = csvFields(line);
+        return new UserRequestDTO(field(fields, columns.get("name")), field(fields, columns.get("email")),
+                field(fields, columns.get("password")));
+    }
+
+    private static String field(List<String> fields, Integer index) {
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and doubled quotes
+    private static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record Row(long number, UserRequestDTO dto) {
+    }
+}
@@ -1,5 +1,8 @@
 package com.reon.auth_backend.service.impl;
 
+import com.reon.auth_backend.cache.EmailIndex;
+import com.reon.auth_backend.cache.UserDetailsCache;
+import com.reon.auth_backend.cache.UserResponseCache;
 import com.reon.auth_backend.dto.UserLoginDTO;
 import com.reon.auth_backend.dto.UserProfileDTO;
 import com.reon.auth_backend.dto.UserRequestDTO;
@@ -16,7 +19,9 @@ import com.reon.auth_backend.service.OtpService;
 import com.reon.auth_backend.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -34,21 +39,30 @@ public class UserServiceImpl implements UserService {
     private final JwtUtils jwtUtils;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
+    private final UserDetailsCache userDetailsCache;
+    private final UserResponseCache userResponseCache;
+    private final EmailIndex emailIndex;
 
     public UserServiceImpl(UserRepository userRepository, OtpService otpService, JwtUtils jwtUtils,
-                           PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager) {
+                           PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager,
+                           UserDetailsCache userDetailsCache, UserResponseCache userResponseCache,
+                           EmailIndex emailIndex) {
         this.userRepository = userRepository;
         this.otpService = otpService;
         this.jwtUtils = jwtUtils;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
+        this.userDetailsCache = userDetailsCache;
+        this.userResponseCache = userResponseCache;
+        this.emailIndex = emailIndex;
     }
 
+    // A new user cannot be cached yet, so registration leaves the user caches alone
     @Transactional
-    @CacheEvict(value = {"users", "usersByEmail"}, allEntries = true)
     @Override
     public UserResponseDTO registerUser(UserRequestDTO userRequestDTO) {
-        if (userRepository.existsByEmail(userRequestDTO.getEmail())) {
+        // A definite miss in the email index skips the lookup; the unique index still guards the insert
+        if (emailIndex.mightContain(userRequestDTO.getEmail()) && userRepository.existsByEmail(userRequestDTO.getEmail())) {
             throw new EmailAlreadyExistsException("User already exists");
         }
 
@@ -56,7 +70,14 @@ public class UserServiceImpl implements UserService {
         User user = UserMapper.toEntity(userRequestDTO);
         user.setPassword(passwordEncoder.encode(user.getPassword()));
 
-        User savedUser = userRepository.save(user);
+        emailIndex.add(user.getEmail());
+        User savedUser;
+        try {
+            // Flushed here so a concurrent registration of the same email surfaces as a conflict, not a 500
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new EmailAlreadyExistsException("User already exists");
+        }
         log.info("Service:: Saving user {}", user);
 
         try {
@@ -71,7 +92,10 @@ public class UserServiceImpl implements UserService {
         return UserMapper.responseToUser(savedUser);
     }
 
-    @CacheEvict(value = {"users", "usersByEmail"}, allEntries = true)
+    @Caching(put = {
+            @CachePut(value = UserResponseCache.USERS, key = "#result.id"),
+            @CachePut(value = UserResponseCache.USERS_BY_EMAIL, key = "#result.email")
+    })
     @Override
     public UserResponseDTO updateUser(Long id, UserRequestDTO userRequestDTO) {
         User user = userRepository.findById(id).orElseThrow(
@@ -87,6 +111,7 @@ public class UserServiceImpl implements UserService {
             UserMapper.updateUser(user, userRequestDTO);
             user.preUpdate();
             User updatedUser = userRepository.save(user);
+            userDetailsCache.invalidate(updatedUser.getId(), updatedUser.getEmail());
 
             log.info("Service:: Updated user {}", user);
             return UserMapper.responseToUser(updatedUser);
@@ -96,11 +121,14 @@ public class UserServiceImpl implements UserService {
         }
     }
 
-    @CacheEvict(value = {"users", "usersByEmail"}, allEntries = true)
     @Override
     public void deleteUser(Long id) {
         log.debug("Service:: Request to delete user: {}", id);
-        userRepository.deleteById(id);
+        userRepository.findById(id).ifPresent(user -> {
+            userRepository.delete(user);
+            userDetailsCache.invalidate(user.getId(), user.getEmail());
+            userResponseCache.evict(user.getId(), user.getEmail());
+        });
     }
 
     @Override
@@ -115,25 +143,13 @@ public class UserServiceImpl implements UserService {
         return new JwtResponse(jwtToken);
     }
 
-    @Override
-    public boolean isUserLoggedIn(Long id) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String authenticatedEmail = authentication.getName();
-        User authenticatedUser = userRepository.findByEmail(authenticatedEmail).orElseThrow(
-                () -> new UserNotFoundException("User not found with email " + authenticatedEmail)
-        );
-        return authenticatedUser.getId().equals(id);
-    }
-
     @Override
     public UserProfileDTO userProfile() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String authenticateEmail = authentication.getName();
 
-        User user = userRepository.findByEmail(authenticateEmail).orElseThrow(
+        return userRepository.findProfileByEmail(authenticateEmail).orElseThrow(
                 () -> new UserNotFoundException("User not found with email " + authenticateEmail)
         );
-
-        return UserMapper.toProfile(user);
     }
 }
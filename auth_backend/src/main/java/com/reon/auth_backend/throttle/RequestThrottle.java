@@ -0,0 +1,243 @@
+package com.reon.auth_backend.throttle;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reon.auth_backend.exceptions.TooManyRequestsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throttles unauthenticated endpoints per email, per client IP and globally, before any hashing,
+ * database or mail work starts.
+ * <p>
+ * Every dimension goes through a node-local token bucket, and a dimension that Redis has already refused
+ * stays blocked locally until its retry time, so requests are decided inside the JVM. Allowed requests are
+ * counted locally and added to the shared sliding-window counters in Redis in batches: on a short schedule,
+ * and at once for a key that reaches {@code throttle.shared.batch-size}. A key over its shared limit is then
+ * blocked on each node that syncs it. The cluster can exceed a shared limit by what its nodes admit within
+ * one sync interval, and each node still holds its local limit. If Redis is unreachable the local buckets
+ * alone decide.
+ * <p>
+ * The client IP is the request's remote address, which is the forwarded client address when it comes
+ * from a trusted proxy ({@code server.forward-headers-strategy}).
+ */
+@Component
+public class RequestThrottle {
+    // Adds a batch to one sliding-window counter and returns 0, or the milliseconds until it is under the limit.
+    // KEYS are the current and previous fixed windows of one counter; they share a hash tag.
+    private static final RedisScript<Long> SLIDING_WINDOW_SCRIPT = new DefaultRedisScript<>("""
+            local count = tonumber(ARGV[1])
+            local limit = tonumber(ARGV[2])
+            local window = tonumber(ARGV[3])
+            local offset = tonumber(ARGV[4])
+            local current = redis.call('INCRBY', KEYS[1], count)
+            redis.call('PEXPIRE', KEYS[1], window * 2)
+            local previous = tonumber(redis.call('GET', KEYS[2]) or '0')
+            if previous * (window - offset) / window + current <= limit then
+                return 0
+            end
+            local retry = window - offset
+            if current <= limit and previous > 0 then
+                retry = math.ceil(window * (1 - (limit - current) / previous)) - offset
+            end
+            return math.max(retry, 1)
+            """, Long.class);
+
+    private final Logger log = LoggerFactory.getLogger(RequestThrottle.class);
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final Map<Action, Map<Dimension, ThrottleRule>> rules = new EnumMap<>(Action.class);
+    private final Cache<String, TokenBucket> buckets;
+    private final Cache<String, Long> blockedUntil;
+    // Requests admitted since the key was last synced
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final int batchSize;
+
+    public RequestThrottle(StringRedisTemplate redisTemplate, Environment environment,
+                           @Value("${throttle.enabled:true}") boolean enabled,
+                           @Value("${throttle.local.max-keys:100000}") long maxKeys,
+                           @Value("${throttle.shared.batch-size:20}") int batchSize) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        for (Action action : Action.values()) {
+            Map<Dimension, ThrottleRule> actionRules = new EnumMap<>(Dimension.class);
+            for (Dimension dimension : Dimension.values()) {
+                String property = "throttle." + action.key + "." + dimension.key;
+                actionRules.put(dimension, ThrottleRule.parse(environment.getProperty(property, action.defaults[dimension.ordinal()])));
+            }
+            rules.put(action, actionRules);
+        }
+        Duration longestWindow = rules.values().stream()
+                .flatMap(actionRules -> actionRules.values().stream())
+                .map(ThrottleRule::window)
+                .max(Comparator.naturalOrder())
+                .orElse(Duration.ofMinutes(15));
+        this.buckets = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterAccess(longestWindow).build();
+        this.blockedUntil = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterWrite(longestWindow).build();
+    }
+
+    public void check(Action action, String email, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+        Map<Dimension, ThrottleRule> actionRules = rules.get(action);
+        List<String> keys = new ArrayList<>(3);
+        List<ThrottleRule> keyRules = new ArrayList<>(3);
+        if (email != null && !email.isBlank()) {
+            keys.add("throttle:" + action.key + ":email:" + email.trim().toLowerCase(Locale.ROOT));
+            keyRules.add(actionRules.get(Dimension.EMAIL));
+        }
+        if (clientIp != null) {
+            keys.add("throttle:" + action.key + ":ip:" + clientIp);
+            keyRules.add(actionRules.get(Dimension.IP));
+        }
+        keys.add("throttle:" + action.key + ":global");
+        keyRules.add(actionRules.get(Dimension.GLOBAL));
+
+        long now = System.nanoTime();
+        for (String key : keys) {
+            Long until = blockedUntil.getIfPresent(key);
+            if (until != null && until - now > 0) {
+                throw rejected(action, key, until - now);
+            }
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            ThrottleRule rule = keyRules.get(i);
+            TokenBucket bucket = buckets.get(keys.get(i), key -> new TokenBucket(rule.limit(), rule.window().toNanos(), now));
+            long waitNanos = bucket.tryAcquire(now);
+            if (waitNanos > 0) {
+                throw rejected(action, keys.get(i), waitNanos);
+            }
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            ThrottleRule rule = keyRules.get(i);
+            // Counted under the map's lock for the key, so a batch that sync() has removed is never added to
+            Pending counted = pending.compute(key, (ignored, current) -> {
+                Pending batch = current != null ? current : new Pending(rule);
+                batch.count().incrementAndGet();
+                return batch;
+            });
+            if (counted.count().get() >= batchSize) {
+                sync(Map.of(key, counted));
+            }
+        }
+    }
+
+    // Adds the admitted requests of every key to the shared counters in one pipelined round trip
+    @Scheduled(fixedDelayString = "${throttle.shared.sync-interval-ms:500}")
+    public void flush() {
+        if (!pending.isEmpty()) {
+            sync(Map.copyOf(pending));
+        }
+    }
+
+    private void sync(Map<String, Pending> batch) {
+        List<String> keys = new ArrayList<>(batch.size());
+        List<Long> counts = new ArrayList<>(batch.size());
+        List<ThrottleRule> keyRules = new ArrayList<>(batch.size());
+        batch.forEach((key, counted) -> {
+            // Later requests start a new batch. Only the sync that removes this one reads it, once no request can add to it
+            if (!pending.remove(key, counted)) {
+                return;
+            }
+            long count = counted.count().get();
+            if (count > 0) {
+                keys.add(key);
+                counts.add(count);
+                keyRules.add(counted.rule());
+            }
+        });
+        if (keys.isEmpty()) {
+            return;
+        }
+        long nowMillis = System.currentTimeMillis();
+        List<Object> results;
+        try {
+            RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < keys.size(); i++) {
+                    long window = keyRules.get(i).window().toMillis();
+                    long index = nowMillis / window;
+                    connection.scriptingCommands().eval(serializer.serialize(SLIDING_WINDOW_SCRIPT.getScriptAsString()),
+                            ReturnType.INTEGER, 2,
+                            serializer.serialize(windowKey(keys.get(i), index)),
+                            serializer.serialize(windowKey(keys.get(i), index - 1)),
+                            serializer.serialize(String.valueOf(counts.get(i))),
+                            serializer.serialize(String.valueOf(keyRules.get(i).limit())),
+                            serializer.serialize(String.valueOf(window)),
+                            serializer.serialize(String.valueOf(nowMillis % window)));
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Throttle:: Redis unavailable, using local limits only: {}", e.getMessage());
+            return;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < keys.size() && i < results.size(); i++) {
+            if (results.get(i) instanceof Number retryMillis && retryMillis.longValue() > 0) {
+                blockedUntil.put(keys.get(i), now + TimeUnit.MILLISECONDS.toNanos(retryMillis.longValue()));
+                log.debug("Throttle:: {} is over its shared limit", keys.get(i));
+            }
+        }
+    }
+
+    // throttle:{<action>:<dimension>:<value>}:<window index>, so both windows of a counter share a slot
+    private static String windowKey(String key, long index) {
+        return "throttle:{" + key.substring("throttle:".length()) + "}:" + index;
+    }
+
+    private static TooManyRequestsException rejected(Action action, String key, long waitNanos) {
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        return new TooManyRequestsException("Throttled " + action + " on " + key, retryAfter);
+    }
+
+    private record Pending(ThrottleRule rule, AtomicLong count) {
+        Pending(ThrottleRule rule) {
+            this(rule, new AtomicLong());
+        }
+    }
+
+    public enum Action {
+        LOGIN("login", "10/15m", "100/15m", "500/1s"),
+        OTP_SEND("otp-send", "3/15m", "20/15m", "50/1s"),
+        OTP_VERIFY("otp-verify", "5/15m", "50/15m", "200/1s");
+
+        private final String key;
+        // Defaults in Dimension order: email, ip, global
+        private final String[] defaults;
+
+        Action(String key, String... defaults) {
+            this.key = key;
+            this.defaults = defaults;
+        }
+    }
+
+    private enum Dimension {
+        EMAIL("email"), IP("ip"), GLOBAL("global");
+
+        private final String key;
+
+        Dimension(String key) {
+            this.key = key;
+        }
+    }
+}
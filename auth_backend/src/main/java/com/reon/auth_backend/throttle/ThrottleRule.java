@@ -0,0 +1,21 @@
+package com.reon.auth_backend.throttle;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+
+/**
+ * At most {@code limit} requests per sliding {@code window}, written as {@code limit/window},
+ * e.g. {@code 10/15m}.
+ */
+record ThrottleRule(long limit, Duration window) {
+
+    static ThrottleRule parse(String value) {
+        int slash = value.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Throttle rule must look like <limit>/<window>: " + value);
+        }
+        return new ThrottleRule(Long.parseLong(value.substring(0, slash).trim()),
+                DurationStyle.detectAndParse(value.substring(slash + 1).trim()));
+    }
+}
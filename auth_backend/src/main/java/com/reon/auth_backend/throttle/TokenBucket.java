@@ -0,0 +1,38 @@
+package com.reon.auth_backend.throttle;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Node-local token bucket. Holds at most {@code capacity} tokens and refills continuously so that
+ * {@code capacity} tokens come back over one window.
+ */
+class TokenBucket {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(long capacity, long windowNanos, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = (double) capacity / windowNanos;
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    // Returns 0 when a token was taken, otherwise the nanos until one is available
+    long tryAcquire(long now) {
+        lock.lock();
+        try {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
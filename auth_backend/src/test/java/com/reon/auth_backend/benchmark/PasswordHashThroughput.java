@@ -0,0 +1,71 @@
+package com.reon.auth_backend.benchmark;
+
+import com.reon.auth_backend.security.PasswordEncoders;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reports hashes per second, in total and per core, for each supported algorithm at the default
+ * cost settings, with one hashing thread per core as in production.
+ *
+ * <pre>
+ * java -cp target/test-classes:target/classes:&lt;deps&gt; com.reon.auth_backend.benchmark.PasswordHashThroughput
+ * </pre>
+ */
+public final class PasswordHashThroughput {
+    private static final long WARMUP_MILLIS = 5_000;
+    private static final long MEASURE_MILLIS = 15_000;
+
+    private PasswordHashThroughput() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Setting> settings = List.of(
+                new Setting("bcrypt-10", PasswordEncoders.delegating(PasswordEncoders.BCRYPT, 10, 19456, 2, 1, 600000)),
+                new Setting("bcrypt-12", PasswordEncoders.delegating(PasswordEncoders.BCRYPT, 12, 19456, 2, 1, 600000)),
+                new Setting("argon2-19m-t2-p1", PasswordEncoders.delegating(PasswordEncoders.ARGON2, 10, 19456, 2, 1, 600000)),
+                new Setting("pbkdf2-sha256-600k", PasswordEncoders.delegating(PasswordEncoders.PBKDF2, 10, 19456, 2, 1, 600000)));
+
+        System.out.printf("cores=%d%n", cores);
+        for (Setting setting : settings) {
+            run(setting.encoder(), cores, WARMUP_MILLIS);
+            long hashes = run(setting.encoder(), cores, MEASURE_MILLIS);
+            double perSecond = hashes / (MEASURE_MILLIS / 1000.0);
+            System.out.printf("%-20s %8.1f hashes/s %8.1f hashes/s/core%n", setting.name(), perSecond, perSecond / cores);
+        }
+    }
+
+    private static long run(PasswordEncoder encoder, int threads, long millis) throws Exception {
+        long deadline = System.currentTimeMillis() + millis;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    long count = 0;
+                    while (System.currentTimeMillis() < deadline) {
+                        encoder.encode("correct horse battery staple");
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+            return total;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private record Setting(String name, PasswordEncoder encoder) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.reon.auth_backend.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator used to compare the two execution modes. Start the application once with
+ * {@code VIRTUAL_THREADS_ENABLED=false} and once with {@code true}, run this against each with the same
+ * settings, and compare the reported throughput and latency percentiles.
+ *
+ * <pre>
+ * java -cp target/test-classes com.reon.auth_backend.benchmark.ThreadModeThroughput \
+ *      -Dbench.url=http://localhost:8080/api/auth/login \
+ *      -Dbench.body='{"email":"load@auth.test","password":"secret123"}' \
+ *      -Dbench.clients=400 -Dbench.warmup=15s -Dbench.duration=60s
+ * </pre>
+ */
+public final class ThreadModeThroughput {
+
+    private ThreadModeThroughput() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(System.getProperty("bench.url", "http://localhost:8080/api/auth/login"));
+        String body = System.getProperty("bench.body");
+        int clients = Integer.getInteger("bench.clients", 400);
+        Duration warmup = Duration.parse("PT" + System.getProperty("bench.warmup", "15s"));
+        Duration duration = Duration.parse("PT" + System.getProperty("bench.duration", "60s"));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30));
+        HttpRequest request = body == null
+                ? builder.GET().build()
+                : builder.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body)).build();
+
+        System.out.printf("Warming up %s with %d clients for %s%n", uri, clients, warmup);
+        run(client, request, clients, warmup);
+        System.out.printf("Measuring for %s%n", duration);
+        Result result = run(client, request, clients, duration);
+        result.print(duration);
+    }
+
+    private static Result run(HttpClient client, HttpRequest request, int clients, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<Future<long[]>> futures = new ArrayList<>();
+        // Clients are virtual threads so the generator itself never becomes the bottleneck
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> {
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 500) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(samples, count);
+                }));
+            }
+        }
+        List<long[]> perClient = new ArrayList<>();
+        for (Future<long[]> future : futures) {
+            perClient.add(future.get());
+        }
+        return new Result(perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray(), errors.get());
+    }
+
+    private record Result(long[] latencies, long errors) {
+
+        void print(Duration duration) {
+            System.out.printf("requests=%d errors=%d throughput=%.1f req/s%n",
+                    latencies.length, errors, latencies.length / (duration.toMillis() / 1000.0));
+            if (latencies.length > 0) {
+                System.out.printf("latency p50=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms%n",
+                        percentile(0.50), percentile(0.99), percentile(0.999), latencies[latencies.length - 1] / 1e6);
+            }
+        }
+
+        private double percentile(double p) {
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1);
+            return latencies[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
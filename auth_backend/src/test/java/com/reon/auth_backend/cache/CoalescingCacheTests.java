@@ -0,0 +1,108 @@
+package com.reon.auth_backend.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CoalescingCacheTests {
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    private final ConcurrentMapCache delegate = new ConcurrentMapCache("users");
+
+    CoalescingCacheTests() {
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CoalescingCache cache = cache(1.0);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(executor.submit(() -> cache.get(42L, () -> {
+                loads.incrementAndGet();
+                release.await();
+                return "user-42";
+            })));
+        }
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<String> result : results) {
+            assertThat(result.get()).isEqualTo("user-42");
+        }
+        executor.shutdown();
+
+        assertThat(loads).hasValue(1);
+        assertThat(delegate.get(42L).get()).isInstanceOf(CachedEntry.class);
+        assertThat(cache.get(42L).get()).isEqualTo("user-42");
+    }
+
+    @Test
+    void entriesCloseToExpiryAreRefreshedByTheLockHolderOnly() throws Exception {
+        CoalescingCache cache = cache(1.0);
+        // Expires in 1 ms but took a second to load, so a refresh is all but certain
+        delegate.put(7L, new CachedEntry("old", System.currentTimeMillis() + 1, 1_000));
+        assertThat(cache.get(7L, () -> "new")).isEqualTo("new");
+
+        // Another node is refreshing: the still valid value is served instead of loading again
+        delegate.put(8L, new CachedEntry("old", System.currentTimeMillis() + 60_000, 1_000_000));
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        assertThat(cache.get(8L, () -> "new")).isEqualTo("old");
+    }
+
+    @Test
+    void ttlsAreJitteredBelowTheConfiguredTtl() throws Exception {
+        CoalescingCache cache = cache(0.0);
+        long before = System.currentTimeMillis();
+        for (long id = 0; id < 20; id++) {
+            cache.get(id, () -> "user");
+        }
+        List<Long> expiries = new ArrayList<>();
+        for (long id = 0; id < 20; id++) {
+            expiries.add(((CachedEntry) delegate.get(id).get()).expiresAtMillis() - before);
+        }
+        assertThat(expiries).allSatisfy(ttl -> assertThat(ttl).isBetween(53_000L, 61_000L));
+        assertThat(expiries.stream().distinct().count()).isGreaterThan(1);
+    }
+
+    @Test
+    void aLoadThatOverlapsAnUpdateDoesNotStoreItsOlderValue() {
+        CoalescingCache cache = cache(1.0);
+        // The update below moves the generation on while the row is being read
+        when(values.get("cache-generation:users:9")).thenReturn("3", "4");
+
+        Object loaded = cache.get(9L, () -> {
+            cache.put(9L, "updated");
+            return "read before the update";
+        });
+
+        assertThat(loaded).isEqualTo("read before the update");
+        // Dropped rather than left in place of the update; the next read loads the current row
+        assertThat(delegate.get(9L)).isNull();
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("cache-generation:users:9")), anyString());
+    }
+
+    private CoalescingCache cache(double beta) {
+        return new CoalescingCache(delegate, redisTemplate, Duration.ofMinutes(1), 0.1, beta,
+                Duration.ofSeconds(5), Duration.ofMillis(100));
+    }
+}
@@ -0,0 +1,122 @@
+package com.reon.auth_backend.cache;
+
+import com.reon.auth_backend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class EmailIndexTests {
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> shared = mock(ZSetOperations.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EmailIndex index = new EmailIndex(userRepository, redisTemplate,
+            mock(PlatformTransactionManager.class), meterRegistry, 1_000, 0.01, 21_600_000);
+
+    EmailIndexTests() {
+        when(redisTemplate.opsForZSet()).thenReturn(shared);
+        when(shared.score(anyString(), anyString())).thenReturn(null);
+    }
+
+    @Test
+    void everyEmailMightExistUntilTheFirstRebuild() {
+        assertThat(index.mightContain("nobody@auth.test")).isTrue();
+    }
+
+    @Test
+    void answersDefiniteMissesAfterRebuildingFromTheTable() {
+        when(userRepository.count()).thenReturn(2L);
+        when(userRepository.streamAllEmails()).thenReturn(Stream.of("Alice@Auth.test", "bob@auth.test"));
+        index.rebuild();
+
+        assertThat(index.mightContain("alice@auth.test")).isTrue();
+        assertThat(index.mightContain(" BOB@auth.test")).isTrue();
+        int misses = 0;
+        for (int i = 0; i < 100; i++) {
+            if (!index.mightContain("unknown-" + i + "@auth.test")) {
+                misses++;
+            }
+        }
+        assertThat(misses).isGreaterThan(90);
+        assertThat(meterRegistry.get("auth.email_index.lookups").tag("result", "definite_miss").counter().count())
+                .isEqualTo(misses);
+    }
+
+    @Test
+    void additionsAreAnnouncedAndSurviveARebuildThatMissedThem() {
+        when(userRepository.count()).thenReturn(0L);
+        when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        index.rebuild();
+
+        index.add("new@auth.test");
+        index.addAll(List.of("first@auth.test", "second@auth.test"));
+        index.addAnnounced("remote@auth.test\nother@auth.test\n");
+        verify(redisTemplate).convertAndSend(EmailIndex.ADDED_CHANNEL, "new@auth.test");
+        verify(redisTemplate).convertAndSend(EmailIndex.ADDED_CHANNEL, "first@auth.test\nsecond@auth.test\n");
+
+        // The table read does not see the uncommitted inserts yet; they are re-applied to the new filter
+        when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        index.rebuild();
+        for (String email : List.of("new@auth.test", "first@auth.test", "second@auth.test", "remote@auth.test", "other@auth.test")) {
+            assertThat(index.mightContain(email)).isTrue();
+        }
+    }
+
+    @Test
+    void additionsAreAnnouncedOnlyAfterCommitAndNeverFailTheInsert() {
+        when(userRepository.count()).thenReturn(0L);
+        when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        index.rebuild();
+        doThrow(new RedisConnectionFailureException("down")).when(redisTemplate).convertAndSend(anyString(), anyString());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.add("pending@auth.test");
+            assertThat(index.mightContain("pending@auth.test")).isTrue();
+            verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(redisTemplate).convertAndSend(EmailIndex.ADDED_CHANNEL, "pending@auth.test");
+    }
+
+    @Test
+    void aLocalMissIsOnlyDefiniteIfNoOtherNodeRecordedTheEmail() {
+        when(userRepository.count()).thenReturn(0L);
+        when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        index.rebuild();
+
+        // Registered on another node whose announcement never arrived
+        when(shared.score("email-index:recent", "elsewhere@auth.test")).thenReturn(1.0);
+        assertThat(index.mightContain("Elsewhere@auth.test")).isTrue();
+        assertThat(index.mightContain("nobody@auth.test")).isFalse();
+
+        when(shared.score("email-index:recent", "unreachable@auth.test")).thenThrow(new RedisConnectionFailureException("down"));
+        assertThat(index.mightContain("unreachable@auth.test")).isTrue();
+    }
+
+    @Test
+    void anEmailIsNotAddedWhenOtherNodesCouldNotFindIt() {
+        when(shared.add(anyString(), anySet())).thenThrow(new RedisConnectionFailureException("down"));
+
+        assertThatThrownBy(() -> index.add("new@auth.test")).isInstanceOf(RedisConnectionFailureException.class);
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+}
@@ -0,0 +1,95 @@
+package com.reon.auth_backend.cache;
+
+import com.reon.auth_backend.jwt.TokenPrincipalCache;
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.model.UserPrincipal;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserDetailsCacheTests {
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+    private final UserDetailsCache cache = new UserDetailsCache(redisTemplate, new ReactiveStringRedisTemplate(connectionFactory),
+            new TokenPrincipalCache(100, Duration.ofMinutes(5)), 100, Duration.ofMinutes(1), Duration.ofMinutes(15));
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("127.0.0.1", port);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void aLoadOverlappingAnInvalidationDoesNotStoreTheOldRow() {
+        String email = "demoted@auth.test";
+        UserPrincipal admin = new UserPrincipal(1L, email, EnumSet.of(User.Role.USER, User.Role.ADMIN), true);
+        UserPrincipal demoted = new UserPrincipal(1L, email, EnumSet.of(User.Role.USER), true);
+
+        // The row is read before the demotion commits and returned after its invalidation ran
+        UserPrincipal stale = cache.get(email, key -> {
+            cache.invalidate(1L, key);
+            return admin;
+        });
+        assertThat(stale.getRoles()).contains(User.Role.ADMIN);
+        assertThat(redisTemplate.hasKey("user-details:{" + email + "}")).isFalse();
+
+        AtomicInteger loads = new AtomicInteger();
+        UserPrincipal reloaded = cache.get(email, key -> {
+            loads.incrementAndGet();
+            return demoted;
+        });
+        assertThat(loads).hasValue(1);
+        assertThat(reloaded.getRoles()).containsExactly(User.Role.USER);
+        assertThat(redisTemplate.hasKey("user-details:{" + email + "}")).isTrue();
+    }
+
+    @Test
+    void invalidationDropsTheSharedEntry() {
+        String email = "changed@auth.test";
+        cache.get(email, key -> new UserPrincipal(2L, key, EnumSet.of(User.Role.USER), true));
+        assertThat(redisTemplate.hasKey("user-details:{" + email + "}")).isTrue();
+
+        cache.invalidate(2L, email);
+
+        assertThat(redisTemplate.hasKey("user-details:{" + email + "}")).isFalse();
+        UserPrincipal disabled = cache.get(email, key -> new UserPrincipal(2L, key, EnumSet.of(User.Role.USER), false));
+        assertThat(disabled.isAccountEnabled()).isFalse();
+    }
+
+    @Test
+    void invalidationMessagesCarryTheIdAndStillAcceptABareEmail() {
+        UserDetailsCache.Invalidation invalidation = new UserDetailsCache.Invalidation(7L, "seven@auth.test");
+        assertThat(UserDetailsCache.Invalidation.parse(invalidation.toMessage())).isEqualTo(invalidation);
+        assertThat(UserDetailsCache.Invalidation.parse(new UserDetailsCache.Invalidation(null, "x@auth.test").toMessage()))
+                .isEqualTo(new UserDetailsCache.Invalidation(null, "x@auth.test"));
+        assertThat(UserDetailsCache.Invalidation.parse("bare@auth.test"))
+                .isEqualTo(new UserDetailsCache.Invalidation(null, "bare@auth.test"));
+    }
+}
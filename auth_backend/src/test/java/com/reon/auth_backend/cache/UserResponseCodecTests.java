@@ -0,0 +1,46 @@
+package com.reon.auth_backend.cache;
+
+import com.reon.auth_backend.configuration.RedisConfig;
+import com.reon.auth_backend.dto.UserResponseDTO;
+import com.reon.auth_backend.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserResponseCodecTests {
+    private final UserResponseDTO user = new UserResponseDTO(4242L, "Zoë Example", "zoe@auth.test", true, false,
+            EnumSet.of(User.Role.USER, User.Role.ADMIN),
+            LocalDateTime.of(2025, 1, 1, 12, 0, 0, 123_456_789), LocalDateTime.of(1960, 6, 1, 12, 0));
+
+    @Test
+    void binaryEntriesRoundTripAndStaySmall() {
+        UserResponseCodec codec = new UserResponseCodec(RedisConfig.cacheValueSerializer(), true);
+        byte[] binary = codec.serialize(user);
+
+        assertThat(binary[0]).isEqualTo(UserResponseCodec.VERSION_1);
+        assertThat(codec.deserialize(binary)).isEqualTo(user);
+        CachedEntry entry = new CachedEntry(user, System.currentTimeMillis(), 12);
+        assertThat(codec.deserialize(codec.serialize(entry))).isEqualTo(entry);
+        assertThat(binary.length).isLessThan(RedisConfig.cacheValueSerializer().serialize(user).length / 4);
+
+        UserResponseDTO empty = new UserResponseDTO();
+        empty.setRoles(EnumSet.noneOf(User.Role.class));
+        assertThat(codec.deserialize(codec.serialize(empty))).isEqualTo(empty);
+    }
+
+    @Test
+    void jsonWrittenBeforeTheRolloutIsStillRead() {
+        byte[] json = new UserResponseCodec(RedisConfig.cacheValueSerializer(), false).serialize(user);
+        UserResponseCodec binaryCodec = new UserResponseCodec(RedisConfig.cacheValueSerializer(), true);
+
+        assertThat(json[0]).isEqualTo((byte) '{');
+        assertThat(binaryCodec.deserialize(json)).isEqualTo(user);
+        assertThat(binaryCodec.deserialize(new UserResponseCodec(RedisConfig.cacheValueSerializer(), false)
+                .serialize(new CachedEntry(user, 1_000, 5)))).isEqualTo(new CachedEntry(user, 1_000, 5));
+        // Values other than user DTOs keep using JSON
+        assertThat(binaryCodec.deserialize(binaryCodec.serialize("not a user"))).isEqualTo("not a user");
+    }
+}
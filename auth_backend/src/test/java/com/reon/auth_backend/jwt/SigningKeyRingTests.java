@@ -0,0 +1,65 @@
+package com.reon.auth_backend.jwt;
+
+import com.reon.auth_backend.model.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SigningKeyRingTests {
+    private static final String LEGACY_SECRET = "c2VjcmV0LWtleS1mb3ItdW5pdC10ZXN0cy1vbmx5LTAxMjM0NTY3ODk=";
+
+    private final SigningKeyRing keyRing = new SigningKeyRing(LEGACY_SECRET);
+    private final JwtUtils jwtUtils = new JwtUtils(3_600_000, keyRing);
+    private final SigningKeyCipher cipher = new SigningKeyCipher("dW5pdC10ZXN0LWtleS1lbmNyeXB0aW9uLWtleS0zMmI=");
+
+    @Test
+    void tokensOfTheCurrentKeyStillVerifyWhileTheNextOneIsPublished() {
+        SigningKey current = SigningKey.generate(SigningKey.ES256, Instant.now().minusSeconds(60));
+        keyRing.replace(List.of(current));
+        String token = jwtUtils.generateToken(user());
+
+        SigningKey next = SigningKey.generate(SigningKey.EDDSA, Instant.now().plusSeconds(3_600));
+        SigningKey.Stored stored = next.toStored(cipher);
+        assertThat(stored.privateKey()).isNotEqualTo(Base64.getEncoder().encodeToString(next.privateKey().getEncoded()));
+        keyRing.replace(List.of(current, SigningKey.fromStored(stored, cipher)));
+
+        assertThat(keyRing.signingKey().kid()).isEqualTo(current.kid());
+        assertThat(jwtUtils.getUsernameFromJwtToken(token)).isEqualTo("user@auth.test");
+        assertThat(keyRing.jwks()).contains(current.kid(), next.kid()).doesNotContain("\"d\"");
+
+        keyRing.replace(List.of(next));
+        assertThatThrownBy(() -> jwtUtils.validateToken(token)).hasMessageContaining("Unknown signing key");
+    }
+
+    @Test
+    void keyLessTokensVerifyWithTheLegacySecret() {
+        keyRing.replace(List.of(SigningKey.generate(SigningKey.ES256, Instant.now())));
+        String legacyToken = Jwts.builder()
+                .subject("user@auth.test")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(LEGACY_SECRET)))
+                .compact();
+
+        assertThat(jwtUtils.getUsernameFromJwtToken(legacyToken)).isEqualTo("user@auth.test");
+        assertThatThrownBy(() -> new JwtUtils(3_600_000, new SigningKeyRing("")).validateToken(legacyToken))
+                .hasMessageContaining("no key id");
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(7L);
+        user.setEmail("user@auth.test");
+        user.setRoles(EnumSet.of(User.Role.USER));
+        return user;
+    }
+}
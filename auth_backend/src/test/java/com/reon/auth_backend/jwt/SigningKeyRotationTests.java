@@ -0,0 +1,92 @@
+package com.reon.auth_backend.jwt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SigningKeyRotationTests {
+    private static final String LOCK_KEY = "jwt:signing-keys:lock";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+    private final SigningKeyCipher cipher = new SigningKeyCipher("dW5pdC10ZXN0LWtleS1lbmNyeXB0aW9uLWtleS0zMmI=");
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("127.0.0.1", port);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void flush() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+    }
+
+    @Test
+    void aNodeStartingWhileAnotherCreatesTheFirstKeyWaitsForIt() throws InterruptedException {
+        // Another node holds the lock and is still creating the first key
+        redisTemplate.opsForValue().set(LOCK_KEY, "other-node", Duration.ofSeconds(30));
+        SigningKeyRing keyRing = new SigningKeyRing("");
+        CompletableFuture<Void> starting = CompletableFuture.runAsync(() -> rotation(keyRing, Duration.ofSeconds(10)).initialize());
+
+        Thread.sleep(1_000);
+        assertThat(starting).isNotDone();
+        SigningKeyRing creatorRing = new SigningKeyRing("");
+        redisTemplate.delete(LOCK_KEY);
+        rotation(creatorRing, Duration.ofSeconds(10)).initialize();
+        starting.join();
+
+        assertThat(keyRing.keys()).extracting(SigningKey::kid)
+                .containsExactlyElementsOf(creatorRing.keys().stream().map(SigningKey::kid).toList());
+        // Redis only ever sees the encrypted private key
+        String stored = (String) redisTemplate.opsForHash().values("jwt:signing-keys").get(0);
+        assertThat(stored).doesNotContain(Base64.getEncoder()
+                .encodeToString(creatorRing.keys().get(0).privateKey().getEncoded()));
+    }
+
+    @Test
+    void startupStillFailsOnceTheWaitRunsOut() {
+        redisTemplate.opsForValue().set(LOCK_KEY, "stuck-node", Duration.ofSeconds(30));
+
+        assertThatThrownBy(() -> rotation(new SigningKeyRing(""), Duration.ofSeconds(1)).initialize())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("No signing keys");
+    }
+
+    private SigningKeyRotation rotation(SigningKeyRing keyRing, Duration startupWait) {
+        return new SigningKeyRotation(redisTemplate, new ObjectMapper(), keyRing, cipher, SigningKey.ES256,
+                Duration.ofDays(30), Duration.ofHours(2), Duration.ofHours(1), startupWait, 3_600_000);
+    }
+}
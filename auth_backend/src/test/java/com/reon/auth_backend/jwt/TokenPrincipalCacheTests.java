@@ -0,0 +1,74 @@
+package com.reon.auth_backend.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenPrincipalCacheTests {
+    private final TokenPrincipalCache cache = new TokenPrincipalCache(100, Duration.ofMinutes(5));
+    private final UserDetails alice = User.withUsername("alice@auth.test").password("").roles("USER").build();
+    private final UserDetails bob = User.withUsername("bob@auth.test").password("").roles("USER").build();
+
+    @Test
+    void entriesLiveUntilTheTokenExpiresButNoLongerThanTheMaxTtl() {
+        cache.put("short-lived", alice, claims(Duration.ofSeconds(30)), cache.generation());
+        cache.put("long-lived", alice, claims(Duration.ofHours(1)), cache.generation());
+
+        assertThat(cache.expiresIn("short-lived")).hasValueSatisfying(ttl ->
+                assertThat(ttl).isLessThanOrEqualTo(Duration.ofSeconds(30)).isGreaterThan(Duration.ofSeconds(25)));
+        assertThat(cache.expiresIn("long-lived")).hasValueSatisfying(ttl ->
+                assertThat(ttl).isLessThanOrEqualTo(Duration.ofMinutes(5)).isGreaterThan(Duration.ofMinutes(4)));
+    }
+
+    @Test
+    void tokensAtOrPastTheirExpiryAreNotCached() {
+        TokenPrincipalCache.CachedPrincipal expired = cache.put("expired", alice, claims(Duration.ofSeconds(-1)), cache.generation());
+        assertThat(expired.principal()).isSameAs(alice);
+        assertThat(cache.get("expired")).isNull();
+
+        Claims noExpiry = Jwts.claims().subject("alice@auth.test").build();
+        cache.put("no-expiry", alice, noExpiry, cache.generation());
+        assertThat(cache.get("no-expiry")).isNull();
+    }
+
+    @Test
+    void evictingAUserOnlyDropsThatUsersEntries() {
+        cache.put("alice-1", alice, claims(Duration.ofHours(1)), cache.generation());
+        cache.put("alice-2", alice, claims(Duration.ofHours(1)), cache.generation());
+        cache.put("bob", bob, claims(Duration.ofHours(1)), cache.generation());
+
+        cache.evictUser("alice@auth.test");
+
+        assertThat(cache.get("alice-1")).isNull();
+        assertThat(cache.get("alice-2")).isNull();
+        assertThat(cache.get("bob")).isNotNull();
+        // Loaded after the eviction: served again
+        cache.put("alice-1", alice, claims(Duration.ofHours(1)), cache.generation());
+        assertThat(cache.get("alice-1")).isNotNull();
+    }
+
+    @Test
+    void aLoadThatStartedBeforeAnEvictionIsNotServed() {
+        long generation = cache.generation();
+        cache.evictUser("alice@auth.test");
+        cache.put("alice", alice, claims(Duration.ofHours(1)), generation);
+
+        assertThat(cache.get("alice")).isNull();
+    }
+
+    private static Claims claims(Duration expiresIn) {
+        return Jwts.claims()
+                .subject("alice@auth.test")
+                .id("jti")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + expiresIn.toMillis()))
+                .build();
+    }
+}
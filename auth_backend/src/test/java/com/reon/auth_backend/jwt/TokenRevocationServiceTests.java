@@ -0,0 +1,98 @@
+package com.reon.auth_backend.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceTests {
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate = mock(ReactiveStringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> index = mock(ZSetOperations.class);
+    private final TokenRevocationService revocations = new TokenRevocationService(redisTemplate, reactiveRedisTemplate, new SimpleMeterRegistry(),
+            3_600_000, 1_000, 0.001);
+
+    TokenRevocationServiceTests() {
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(redisTemplate.opsForZSet()).thenReturn(index);
+    }
+
+    @Test
+    void tokensThatWereNeverRevokedAreAnsweredLocally() {
+        revocations.revokeToken("revoked-id", new Date(System.currentTimeMillis() + 60_000));
+        verify(values).set(eq("revoked:jti:revoked-id"), eq("1"), any(Duration.class));
+        clearInvocations(redisTemplate, values);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(revocations.isRevoked("active-" + i, "user@auth.test", 0)).isFalse();
+        }
+        verifyNoInteractions(redisTemplate, values);
+
+        when(redisTemplate.hasKey("revoked:jti:revoked-id")).thenReturn(true);
+        assertThat(revocations.isRevoked("revoked-id", "user@auth.test", 0)).isTrue();
+
+        // The reactive variant answers from the same filters and only asks Redis on a probable hit
+        assertThat(revocations.isRevokedReactive("active-0", "user@auth.test", 0).block()).isFalse();
+        verifyNoInteractions(reactiveRedisTemplate);
+        when(reactiveRedisTemplate.hasKey("revoked:jti:revoked-id")).thenReturn(Mono.just(true));
+        assertThat(revocations.isRevokedReactive("revoked-id", "user@auth.test", 0).block()).isTrue();
+    }
+
+    @Test
+    void userRevocationOnlyRejectsTokensIssuedBeforeIt() {
+        long now = System.currentTimeMillis();
+        revocations.revokeUser("user@auth.test");
+        when(values.get("revoked:user:user@auth.test")).thenReturn(String.valueOf(now));
+
+        assertThat(revocations.isRevoked("old", "user@auth.test", now - 60_000)).isTrue();
+        assertThat(revocations.isRevoked("new", "user@auth.test", now + 1)).isFalse();
+
+        // A probable hit that Redis cannot confirm is rejected
+        when(values.get(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+        assertThat(revocations.isRevoked("new", "user@auth.test", now + 1)).isTrue();
+    }
+
+    @Test
+    void tokensIssuedInTheSameSecondAsTheRevocationAreToldApart() {
+        long revokedAt = 1_760_000_000_400L;
+        revocations.revokeUser("user@auth.test");
+        when(values.get("revoked:user:user@auth.test")).thenReturn(String.valueOf(revokedAt));
+        ReactiveValueOperations<String, String> reactiveValues = mockReactiveValues(revokedAt);
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(reactiveValues);
+
+        assertThat(revocations.isRevoked("before", "user@auth.test", revokedAt - 300)).isTrue();
+        assertThat(revocations.isRevoked("at", "user@auth.test", revokedAt)).isTrue();
+        // The replacement token a user gets right after a password change stays valid
+        assertThat(revocations.isRevoked("after", "user@auth.test", revokedAt + 300)).isFalse();
+        assertThat(revocations.isRevokedReactive("before", "user@auth.test", revokedAt - 300).block()).isTrue();
+        assertThat(revocations.isRevokedReactive("after", "user@auth.test", revokedAt + 300).block()).isFalse();
+
+        // Entries stored in seconds before the upgrade still cover their whole second
+        when(values.get("revoked:user:user@auth.test")).thenReturn(String.valueOf(revokedAt / 1000));
+        assertThat(revocations.isRevoked("legacy", "user@auth.test", revokedAt + 300)).isTrue();
+        assertThat(revocations.isRevoked("next-second", "user@auth.test", revokedAt + 600)).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReactiveValueOperations<String, String> mockReactiveValues(long revokedAt) {
+        ReactiveValueOperations<String, String> reactiveValues = mock(ReactiveValueOperations.class);
+        when(reactiveValues.get("revoked:user:user@auth.test")).thenReturn(Mono.just(String.valueOf(revokedAt)));
+        return reactiveValues;
+    }
+}
@@ -0,0 +1,60 @@
+package com.reon.auth_backend.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-endpoint latency recording for the load harness. Samples are recorded in microseconds into
+ * HdrHistogram recorders, which are safe to write from many threads at once.
+ */
+class LatencyReport {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> snapshots = new ConcurrentHashMap<>();
+    private long startedAt;
+    private long finishedAt;
+
+    void start() {
+        startedAt = System.nanoTime();
+    }
+
+    void finish() {
+        finishedAt = System.nanoTime();
+        recorders.forEach((endpoint, recorder) -> snapshots.put(endpoint, recorder.getIntervalHistogram()));
+    }
+
+    void record(String endpoint, long elapsedNanos) {
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), HIGHEST_TRACKABLE_MICROS);
+        recorders.computeIfAbsent(endpoint, key -> new Recorder(HIGHEST_TRACKABLE_MICROS, 3)).recordValue(micros);
+    }
+
+    Duration percentile(String endpoint, double percentile) {
+        Histogram histogram = snapshots.get(endpoint);
+        return histogram == null ? Duration.ZERO : Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(histogram.getValueAtPercentile(percentile)));
+    }
+
+    String render() {
+        double seconds = (finishedAt - startedAt) / 1e9;
+        StringBuilder out = new StringBuilder(String.format("%-16s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "count", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        List<String> endpoints = new ArrayList<>(snapshots.keySet());
+        endpoints.sort(null);
+        for (String endpoint : endpoints) {
+            Histogram histogram = snapshots.get(endpoint);
+            out.append(String.format("%-16s %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", endpoint,
+                    histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(95) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0, histogram.getMaxValue() / 1000.0));
+        }
+        out.append(String.format("wall time %.1fs%n", seconds));
+        return out.toString();
+    }
+}
@@ -0,0 +1,324 @@
+package com.reon.auth_backend.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.repository.UserRepository;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the whole application on an in-memory H2 database, an embedded Redis and a GreenMail SMTP sink,
+ * then drives concurrent register, verify, login, profile, admin-list and logout scenarios over HTTP. Prints
+ * throughput and p50/p95/p99 per endpoint and fails if any endpoint's p99 exceeds its
+ * {@code load.budget.*} value. Run with {@code mvn -Pload test}.
+ */
+@Tag("load")
+@ActiveProfiles("load")
+@AutoConfigureObservability(tracing = false)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadHarnessTests {
+    private static final String PASSWORD = "load-test-pass";
+    private static final Pattern OTP = Pattern.compile("\\b(\\d{6})\\b");
+    private static final List<String> ENDPOINTS = List.of("register", "verify-account", "login", "profile", "admin-list",
+            "logout");
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP.dynamicPort())
+            .withPerMethodLifecycle(false);
+
+    private static RedisServer redisServer;
+    private static int redisPort;
+
+    @LocalServerPort
+    private int port;
+    @LocalManagementPort
+    private int managementPort;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private Environment environment;
+    @Value("${load.users}")
+    private int users;
+    @Value("${load.concurrency}")
+    private int concurrency;
+    @Value("${load.profile-reads}")
+    private int profileReads;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LatencyReport report = new LatencyReport();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            redisPort = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(redisPort);
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @DynamicPropertySource
+    static void infrastructure(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.redis.host", () -> "127.0.0.1");
+        registry.add("spring.data.redis.port", () -> redisPort);
+        registry.add("spring.mail.host", () -> "127.0.0.1");
+        registry.add("spring.mail.port", () -> greenMail.getSmtp().getPort());
+    }
+
+    @Test
+    void scenariosStayWithinLatencyBudgets() throws Exception {
+        String adminToken = seedAdminAndLogin();
+
+        report.start();
+        List<Future<?>> runs = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(concurrency)) {
+            for (int i = 0; i < users; i++) {
+                int index = i;
+                runs.add(executor.submit(() -> {
+                    scenario(index, adminToken);
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        }
+        report.finish();
+        System.out.println(report.render());
+
+        // The metrics named in the scrape are the ones dashboards and alerts are built on. They are only served,
+        // without a token, on the management port
+        assertThat(client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/prometheus")).build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode()).as("prometheus on the application port").isNotEqualTo(200);
+        HttpResponse<String> scrape = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + managementPort + "/actuator/prometheus")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(scrape.statusCode()).as("prometheus scrape").isEqualTo(200);
+        assertThat(client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + managementPort + "/actuator/metrics")).build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode()).as("other endpoints on the management port").isEqualTo(401);
+        assertThat(scrape.body()).contains("http_server_requests_seconds_bucket", "auth_jwt_verify_seconds_bucket",
+                "auth_password_hash_seconds_bucket", "cache_gets_total", "email_send_seconds_bucket",
+                "email_outbox_pending", "http_server_requests_db_statements", "cache=\"users\"",
+                "auth_email_index_lookups_total");
+
+        // Other services verify tokens against the published key set and revalidate it with the ETag
+        HttpResponse<String> jwks = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/.well-known/jwks.json")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(jwks.statusCode()).as("jwks").isEqualTo(200);
+        assertThat(jwks.headers().firstValue("Cache-Control")).hasValueSatisfying(value -> assertThat(value).contains("max-age", "public"));
+        String kid = objectMapper.readTree(Base64.getUrlDecoder().decode(adminToken.substring(0, adminToken.indexOf('.')))).get("kid").asText();
+        assertThat(jwks.body()).contains(kid);
+        HttpResponse<String> revalidated = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/.well-known/jwks.json"))
+                .header("If-None-Match", jwks.headers().firstValue("ETag").orElseThrow()).build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(revalidated.statusCode()).as("jwks revalidation").isEqualTo(304);
+
+        for (String endpoint : ENDPOINTS) {
+            Duration budget = environment.getRequiredProperty("load.budget." + endpoint, Duration.class);
+            assertThat(report.percentile(endpoint, 99))
+                    .as("p99 of %s", endpoint)
+                    .isLessThanOrEqualTo(budget);
+        }
+    }
+
+    @Test
+    void bulkImportKeepsItsThroughput() throws Exception {
+        String adminToken = seedAdminAndLogin();
+        int importUsers = environment.getRequiredProperty("load.import.users", Integer.class);
+        int withPassword = environment.getRequiredProperty("load.import.with-password", Integer.class);
+
+        // The first import pays for class loading and query compilation, so it only warms up
+        importUsers(adminToken, "warmup", environment.getRequiredProperty("load.import.warmup-users", Integer.class), withPassword);
+
+        long start = System.nanoTime();
+        JsonNode report = importUsers(adminToken, "import", importUsers, withPassword);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("import: %d users in %.2fs (%.0f users/s)%n", importUsers, seconds, importUsers / seconds);
+
+        assertThat(report.get("created").asLong()).isEqualTo(importUsers);
+        assertThat(report.get("errors").get(0).get("row").asLong()).isEqualTo(importUsers + 1);
+        assertThat(importUsers / seconds).as("imported users per second")
+                .isGreaterThanOrEqualTo(environment.getRequiredProperty("load.budget.import-rate", Double.class));
+    }
+
+    // Mostly invite-only rows, a few with passwords to hash, and a duplicate of the first row at the end
+    private JsonNode importUsers(String adminToken, String prefix, int count, int withPassword) throws Exception {
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String email = prefix + "-" + i + "@import.test";
+            Map<String, String> row = i < withPassword
+                    ? Map.of("name", "Imported " + i, "email", email, "password", PASSWORD)
+                    : Map.of("name", "Imported " + i, "email", email);
+            file.append(objectMapper.writeValueAsString(row)).append('\n');
+        }
+        file.append(objectMapper.writeValueAsString(Map.of("name", "Again", "email", prefix + "-0@import.test"))).append('\n');
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/admin/users/import?format=NDJSON"))
+                .header("Authorization", "Bearer " + adminToken)
+                .header("Content-Type", "application/x-ndjson")
+                .timeout(Duration.ofMinutes(5))
+                .POST(HttpRequest.BodyPublishers.ofString(file.toString())).build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).as("import: %s", response.body()).isEqualTo(200);
+        return objectMapper.readTree(response.body());
+    }
+
+    private void scenario(int index, String adminToken) throws Exception {
+        String email = "load-user-" + index + "@auth.test";
+
+        send("register", "POST", "/api/auth/register", null,
+                Map.of("name", "Load User " + index, "email", email, "password", PASSWORD));
+        String otp = awaitOtp(email);
+        // Unknown emails are turned away by the email index before any query
+        HttpResponse<String> unknownReset = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/otp/reset-password?email=missing-" + email))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(unknownReset.statusCode()).as("reset for an unknown email").isEqualTo(404);
+        send("verify-account", "POST", "/api/otp/verify-account?email=" + email, null, Map.of("otp", otp));
+        String token = send("login", "POST", "/api/auth/login", null,
+                Map.of("email", email, "password", PASSWORD)).get("token").asText();
+        long userId = 0;
+        for (int i = 0; i < profileReads; i++) {
+            userId = send("profile", "GET", "/api/user/profile", token, null).get("id").asLong();
+        }
+        // Owners may change their own account and nobody else's
+        send("update", "PUT", "/api/user/update/id/" + userId, token, Map.of("name", "Renamed User " + index));
+        HttpResponse<String> foreignUpdate = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/user/update/id/" + (userId + 1_000_000)))
+                .header("Authorization", "Bearer " + token).header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"name\":\"Intruder\"}")).build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(foreignUpdate.statusCode()).as("update of another account").isEqualTo(403);
+        send("admin-list", "GET", "/api/admin/users/cursor?size=20", adminToken, null);
+        // Served from the coalesced users cache after the first load
+        for (int i = 0; i < 2; i++) {
+            assertThat(send("admin-fetch", "GET", "/api/admin/id/" + userId, adminToken, null).get("email").asText()).isEqualTo(email);
+        }
+        // Sparse fieldset: only the requested properties come back
+        JsonNode sparse = send("admin-fields", "GET", "/api/admin/users?page=1&size=20&fields=id,email", adminToken, null);
+        assertThat(sparse.get("content").get(0).properties()).extracting(Map.Entry::getKey).containsExactly("id", "email");
+
+        // Gateway checks: 204 with identity headers, and a batch that reports each token separately
+        HttpResponse<String> introspection = introspect(token);
+        assertThat(introspection.statusCode()).as("introspect: %s", introspection.body()).isEqualTo(204);
+        assertThat(introspection.headers().firstValue("X-Auth-User-Id")).contains(String.valueOf(userId));
+        JsonNode batch = send("introspect-batch", "POST", "/api/introspect/batch", null, Map.of("tokens", List.of(token, "not-a-token")));
+        assertThat(batch).extracting(result -> result.get("active").asBoolean()).containsExactly(true, false);
+
+        // A logged out token must be refused even though it has not expired
+        send("logout", "POST", "/api/auth/logout", token, null);
+        assertThat(introspect(token).statusCode()).as("introspect after logout").isEqualTo(401);
+        HttpResponse<String> afterLogout = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/user/profile"))
+                .header("Authorization", "Bearer " + token).build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(afterLogout.statusCode()).as("profile after logout").isEqualTo(401);
+    }
+
+    private HttpResponse<String> introspect(String token) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/introspect"))
+                .header("Authorization", "Bearer " + token).build(), HttpResponse.BodyHandlers.ofString());
+        report.record("introspect", System.nanoTime() - start);
+        return response;
+    }
+
+    private String seedAdminAndLogin() throws Exception {
+        String email = "load-admin@auth.test";
+        if (userRepository.existsByEmail(email)) {
+            return send(null, "POST", "/api/auth/login", null, Map.of("email", email, "password", PASSWORD)).get("token").asText();
+        }
+        User admin = new User();
+        admin.setName("Load Admin");
+        admin.setEmail(email);
+        admin.setPassword(passwordEncoder.encode(PASSWORD));
+        admin.setRoles(EnumSet.of(User.Role.USER, User.Role.ADMIN));
+        admin.setAccountEnabled(true);
+        admin.setEmailVerified(true);
+        userRepository.save(admin);
+        return send(null, "POST", "/api/auth/login", null,
+                Map.of("email", admin.getEmail(), "password", PASSWORD)).get("token").asText();
+    }
+
+    // Delivery is asynchronous through the outbox, so the mail is polled for and not counted as endpoint latency
+    private String awaitOtp(String email) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (System.nanoTime() < deadline) {
+            MimeMessage[] messages = greenMail.getReceivedMessagesForDomain(email);
+            if (messages.length > 0) {
+                Matcher matcher = OTP.matcher(GreenMailUtil.getBody(messages[messages.length - 1]));
+                if (matcher.find()) {
+                    return matcher.group(1);
+                }
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("No verification mail for " + email);
+    }
+
+    private JsonNode send(String endpoint, String method, String path, String token, Object body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        if (body != null) {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        long elapsed = System.nanoTime() - start;
+
+        assertThat(response.statusCode()).as("%s %s: %s", method, path, response.body()).isEqualTo(200);
+        if (endpoint != null) {
+            report.record(endpoint, elapsed);
+        }
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        return contentType.contains("json") ? objectMapper.readTree(response.body()) : objectMapper.nullNode();
+    }
+}
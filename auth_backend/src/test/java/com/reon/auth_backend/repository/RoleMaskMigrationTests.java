@@ -0,0 +1,89 @@
+package com.reon.auth_backend.repository;
+
+import com.reon.auth_backend.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class RoleMaskMigrationTests {
+    private static final String URL = "jdbc:h2:mem:roles;MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+
+    // The schema comes from the entity, as ddl-auto=update would create it
+    private final SessionFactory sessionFactory = new Configuration()
+            .addAnnotatedClass(User.class)
+            .setProperty("hibernate.connection.url", URL)
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+            .setProperty("hibernate.javax.cache.uri", "hibernate-cache.conf")
+            .setProperty("hibernate.javax.cache.missing_cache_strategy", "fail")
+            .buildSessionFactory();
+    private final SingleConnectionDataSource dataSource = new SingleConnectionDataSource(URL, "sa", "", true);
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @AfterEach
+    void close() {
+        dataSource.destroy();
+        sessionFactory.close();
+    }
+
+    @Test
+    void copiesRolesWrittenByThePreviousReleaseIntoTheMaskOnce() {
+        // Rows as the previous release inserts them: no role_mask, roles only in user_roles
+        for (int id = 1; id <= 3; id++) {
+            jdbcTemplate.update("insert into users (id, name, email, password, accountEnabled, emailVerified, createdAt, updatedAt) "
+                    + "values (?, 'Old', ?, 'x', true, true, current_timestamp, current_timestamp)", id, "old-" + id + "@auth.test");
+        }
+        jdbcTemplate.execute("insert into user_roles values (1, 'USER'), (1, 'ADMIN'), (2, 'USER')");
+        RoleMaskMigration migration = new RoleMaskMigration(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                mock(EntityManagerFactory.class));
+
+        migration.migrate();
+        // Another node, or a restart, finds the migration recorded and leaves later changes alone
+        jdbcTemplate.update("update users set role_mask = ? where id = 2", User.Role.toMask(EnumSet.allOf(User.Role.class)));
+        migration.migrate();
+
+        List<Integer> masks = jdbcTemplate.queryForList("select role_mask from users order by id", Integer.class);
+        assertThat(masks).containsExactly(User.Role.toMask(EnumSet.allOf(User.Role.class)),
+                User.Role.toMask(EnumSet.allOf(User.Role.class)), User.Role.USER.bit());
+        assertThat(jdbcTemplate.queryForObject("select count(*) from schema_migrations where name = ?", Integer.class,
+                RoleMaskMigration.NAME)).isOne();
+        // The old table stays for replicas of the previous release
+        assertThat(jdbcTemplate.queryForObject("select count(*) from user_roles", Integer.class)).isEqualTo(3);
+        // Every user with the same roles shares one authority list
+        assertThat(User.Role.authorities(EnumSet.of(User.Role.ADMIN, User.Role.USER)))
+                .isSameAs(User.Role.authorities(EnumSet.allOf(User.Role.class)))
+                .extracting(Object::toString).containsExactly("ROLE_USER", "ROLE_ADMIN");
+    }
+
+    @Test
+    void keepsTheOldTableInStepWithTheMask() {
+        User user = new User();
+        user.setName("New User");
+        user.setEmail("new@auth.test");
+        user.setPassword("{noop}password");
+        sessionFactory.inTransaction(session -> session.persist(user));
+        assertThat(legacyRoles(user.getId())).containsExactly("USER");
+
+        sessionFactory.inTransaction(session -> session.find(User.class, user.getId()).getRoles().add(User.Role.ADMIN));
+        assertThat(legacyRoles(user.getId())).containsExactlyInAnyOrder("USER", "ADMIN");
+
+        // The foreign key from the old table does not block deleting the user
+        sessionFactory.inTransaction(session -> session.remove(session.find(User.class, user.getId())));
+        assertThat(legacyRoles(user.getId())).isEmpty();
+    }
+
+    private List<String> legacyRoles(Long userId) {
+        return jdbcTemplate.queryForList("select roles from user_roles where user_id = ?", String.class, userId);
+    }
+}
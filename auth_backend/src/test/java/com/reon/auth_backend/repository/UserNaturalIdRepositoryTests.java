@@ -0,0 +1,99 @@
+package com.reon.auth_backend.repository;
+
+import com.reon.auth_backend.cache.UserSecondLevelCache;
+import com.reon.auth_backend.model.User;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserNaturalIdRepositoryTests {
+    // Same cache settings as application.properties, on an in-memory database
+    private final SessionFactory sessionFactory = new Configuration()
+            .addAnnotatedClass(User.class)
+            .setProperty("hibernate.connection.url", "jdbc:h2:mem:natural-id;MODE=MySQL;DATABASE_TO_LOWER=TRUE")
+            .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+            .setProperty("hibernate.cache.use_second_level_cache", "true")
+            .setProperty("hibernate.cache.region.factory_class", "jcache")
+            .setProperty("hibernate.javax.cache.provider", "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider")
+            .setProperty("hibernate.javax.cache.uri", "hibernate-cache.conf")
+            .setProperty("hibernate.javax.cache.missing_cache_strategy", "fail")
+            .setProperty("hibernate.generate_statistics", "true")
+            .buildSessionFactory();
+
+    @AfterEach
+    void close() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void repeatedLookupsByEmailAreServedFromTheSecondLevelCache() {
+        User user = new User();
+        user.setName("Cached User");
+        user.setEmail("cached@auth.test");
+        user.setPassword("{noop}password");
+        sessionFactory.inTransaction(session -> session.persist(user));
+        // IDENTITY inserts are not put into the cache, so the first lookup reads the row
+        lookup(repository -> repository.findByNaturalEmail("cached@auth.test"));
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        assertThat(lookup(repository -> repository.findByNaturalEmail("cached@auth.test")))
+                .map(User::getName).contains("Cached User");
+        assertThat(lookup(repository -> repository.findByNaturalEmail("cached@auth.test")))
+                .map(User::getName).contains("Cached User");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getNaturalIdCacheHitCount()).isEqualTo(2);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThanOrEqualTo(2);
+
+        // A committed change replaces the cached copy
+        sessionFactory.inTransaction(session -> session.find(User.class, user.getId()).setName("Renamed User"));
+        assertThat(lookup(repository -> repository.findByNaturalEmail("cached@auth.test")))
+                .map(User::getName).contains("Renamed User");
+
+        // Deleting drops the email mapping as well, so the email resolves to nothing
+        sessionFactory.inTransaction(session -> session.remove(session.find(User.class, user.getId())));
+        assertThat(lookup(repository -> repository.findByNaturalEmail("cached@auth.test"))).isEmpty();
+    }
+
+    @Test
+    void anotherNodesChangeEvictsOnlyThatUser() {
+        User changed = persist("changed@auth.test");
+        User untouched = persist("untouched@auth.test");
+        lookup(repository -> repository.findByNaturalEmail("changed@auth.test"));
+        lookup(repository -> repository.findByNaturalEmail("untouched@auth.test"));
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        new UserSecondLevelCache(sessionFactory).evict(changed.getId(), changed.getEmail());
+
+        assertThat(sessionFactory.getCache().containsEntity(User.class, changed.getId())).isFalse();
+        assertThat(sessionFactory.getCache().containsEntity(User.class, untouched.getId())).isTrue();
+        lookup(repository -> repository.findByNaturalEmail("untouched@auth.test"));
+        assertThat(statistics.getNaturalIdCacheHitCount()).isOne();
+        lookup(repository -> repository.findByNaturalEmail("changed@auth.test"));
+        assertThat(statistics.getNaturalIdCacheMissCount()).isOne();
+    }
+
+    private User persist(String email) {
+        User user = new User();
+        user.setName("Cached User");
+        user.setEmail(email);
+        user.setPassword("{noop}password");
+        sessionFactory.inTransaction(session -> session.persist(user));
+        return user;
+    }
+
+    private Optional<User> lookup(Function<UserNaturalIdRepository, Optional<User>> query) {
+        try (Session session = sessionFactory.openSession()) {
+            return query.apply(new UserNaturalIdRepositoryImpl(session));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.reon.auth_backend.security;
+
+import com.reon.auth_backend.exceptions.HashingOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingEngineTests {
+
+    @Test
+    void legacyBcryptHashesVerifyAndAreFlaggedForUpgrade() {
+        PasswordEncoder encoder = PasswordEncoders.delegating(PasswordEncoders.ARGON2, 4, 1024, 1, 1, 1000);
+        String legacy = new BCryptPasswordEncoder(4).encode("secret123");
+
+        assertThat(encoder.matches("secret123", legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacy)).isTrue();
+
+        String upgraded = encoder.encode("secret123");
+        assertThat(upgraded).startsWith("{argon2}");
+        assertThat(encoder.matches("secret123", upgraded)).isTrue();
+        assertThat(encoder.upgradeEncoding(upgraded)).isFalse();
+    }
+
+    @Test
+    void rejectsWorkOnceTheQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new BlockingEncoder(release);
+        PasswordHashingEngine engine = new PasswordHashingEngine(blocking, 1, 1, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            // One job running and one queued fills the engine
+            callers.submit(() -> engine.encode("a"));
+            callers.submit(() -> engine.encode("b"));
+            while (engine.activeCount() < 1 || engine.queueDepth() < 1) {
+                Thread.sleep(5);
+            }
+
+            assertThatThrownBy(() -> engine.encode("c")).isInstanceOf(HashingOverloadedException.class);
+        } finally {
+            release.countDown();
+            callers.shutdown();
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void dropsJobsThatWaitedPastTheDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordHashingEngine engine = new PasswordHashingEngine(new BlockingEncoder(release), 1, 4, Duration.ofMillis(50),
+                new SimpleMeterRegistry());
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            callers.submit(() -> engine.encode("a"));
+            while (engine.activeCount() < 1) {
+                Thread.sleep(5);
+            }
+            var queued = callers.submit(() -> engine.encode("b"));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThatThrownBy(queued::get).hasCauseInstanceOf(HashingOverloadedException.class);
+        } finally {
+            callers.shutdown();
+            engine.shutdown();
+        }
+    }
+
+    private record BlockingEncoder(CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
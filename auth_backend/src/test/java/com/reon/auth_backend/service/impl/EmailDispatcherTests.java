@@ -0,0 +1,97 @@
+package com.reon.auth_backend.service.impl;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.reon.auth_backend.model.EmailOutbox;
+import com.reon.auth_backend.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EmailDispatcherTests {
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final EmailOutboxRepository repository = mock(EmailOutboxRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(repository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void drainSendsDueMailsAndMarksThemSent() {
+        List<EmailOutbox> pending = pendingMails(5);
+        when(repository.findDispatchable(any(), any(), any(), any())).thenReturn(pending, List.of());
+
+        EmailDispatcher dispatcher = dispatcher(ServerSetupTest.SMTP.getPort());
+        assertThat(dispatcher.drain()).isEqualTo(5);
+        dispatcher.shutdown();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(5);
+        assertThat(pending).allSatisfy(email -> {
+            assertThat(email.getStatus()).isEqualTo(EmailOutbox.Status.SENT);
+            assertThat(email.getAttempts()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void failedDeliveryIsRescheduledWithBackoff() {
+        List<EmailOutbox> pending = pendingMails(2);
+        when(repository.findDispatchable(any(), any(), any(), any())).thenReturn(pending, List.of());
+
+        greenMail.stop();
+        EmailDispatcher dispatcher = dispatcher(ServerSetupTest.SMTP.getPort());
+        dispatcher.drain();
+        dispatcher.shutdown();
+
+        assertThat(pending).allSatisfy(email -> {
+            assertThat(email.getStatus()).isEqualTo(EmailOutbox.Status.PENDING);
+            assertThat(email.getAttempts()).isEqualTo(1);
+            assertThat(email.getNextAttemptAt()).isAfter(LocalDateTime.now().plusSeconds(20));
+            assertThat(email.getLastError()).isNotBlank();
+        });
+    }
+
+    private EmailDispatcher dispatcher(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(port);
+        return new EmailDispatcher(repository, mailSender, transactionManager, "noreply@auth.test",
+                50, 2, 3, Duration.ofSeconds(30), Duration.ofMinutes(30), Duration.ofMinutes(5),
+                Duration.ofSeconds(5), Duration.ofDays(7), true, new SimpleMeterRegistry());
+    }
+
+    private static List<EmailOutbox> pendingMails(int count) {
+        List<EmailOutbox> mails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            EmailOutbox email = new EmailOutbox();
+            email.setId((long) i);
+            email.setRecipient("user" + i + "@auth.test");
+            email.setPurpose(EmailOutbox.Purpose.ACCOUNT_VERIFICATION);
+            email.setSubject("Verify Your Auth Module Account");
+            email.setBody("OTP " + i);
+            email.setNextAttemptAt(LocalDateTime.now());
+            mails.add(email);
+        }
+        return mails;
+    }
+}
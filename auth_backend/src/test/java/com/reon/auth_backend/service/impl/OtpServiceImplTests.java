@@ -0,0 +1,73 @@
+package com.reon.auth_backend.service.impl;
+
+import com.reon.auth_backend.cache.EmailIndex;
+import com.reon.auth_backend.cache.UserDetailsCache;
+import com.reon.auth_backend.cache.UserResponseCache;
+import com.reon.auth_backend.exceptions.UserNotFoundException;
+import com.reon.auth_backend.jwt.TokenRevocationService;
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.repository.OtpRepository;
+import com.reon.auth_backend.repository.UserRepository;
+import com.reon.auth_backend.service.EmailService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OtpServiceImplTests {
+    private static final String EMAIL = "user@auth.test";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final OtpRepository otpRepository = mock(OtpRepository.class);
+    private final OtpServiceImpl service = new OtpServiceImpl(userRepository, otpRepository, mock(EmailService.class),
+            mock(PasswordEncoder.class), mock(UserDetailsCache.class), mock(UserResponseCache.class),
+            mock(TokenRevocationService.class), mock(EmailIndex.class));
+
+    @BeforeEach
+    void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void endTransaction() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void aResetThatRollsBackGivesTheCodeBack() {
+        when(otpRepository.consume(OtpRepository.Purpose.PASSWORD_RESET, EMAIL, "123456"))
+                .thenReturn(new OtpRepository.Consumption(OtpRepository.Result.MATCHED, Duration.ofMinutes(9)));
+        when(userRepository.findByNaturalEmail(EMAIL)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.resetPassword(EMAIL, "123456", "new-password"))
+                .isInstanceOf(UserNotFoundException.class);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(otpRepository).restore(OtpRepository.Purpose.PASSWORD_RESET, EMAIL, "123456", Duration.ofMinutes(9));
+    }
+
+    @Test
+    void aCommittedVerificationKeepsTheCodeUsedUp() {
+        when(otpRepository.consume(OtpRepository.Purpose.ACCOUNT_VERIFICATION, EMAIL, "123456"))
+                .thenReturn(new OtpRepository.Consumption(OtpRepository.Result.MATCHED, Duration.ofMinutes(9)));
+        when(userRepository.findByNaturalEmail(EMAIL)).thenReturn(Optional.of(new User()));
+
+        service.verifyAccount(EMAIL, "123456");
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(otpRepository, never()).restore(any(), any(), any(), any());
+    }
+
+    private static void complete(int status) {
+        TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
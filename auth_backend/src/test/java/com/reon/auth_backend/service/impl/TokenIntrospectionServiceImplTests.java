@@ -0,0 +1,76 @@
+package com.reon.auth_backend.service.impl;
+
+import com.reon.auth_backend.cache.UserDetailsCache;
+import com.reon.auth_backend.dto.IntrospectionDTO;
+import com.reon.auth_backend.jwt.JwtUtils;
+import com.reon.auth_backend.jwt.TokenPrincipalCache;
+import com.reon.auth_backend.jwt.TokenRevocationService;
+import com.reon.auth_backend.model.User;
+import com.reon.auth_backend.model.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TokenIntrospectionServiceImplTests {
+    private static final String EMAIL = "user@auth.test";
+
+    private final JwtUtils jwtUtils = mock(JwtUtils.class);
+    private final TokenPrincipalCache tokenPrincipalCache = new TokenPrincipalCache(100, Duration.ofMinutes(5));
+    private final UserDetailsCache userDetailsCache = mock(UserDetailsCache.class);
+    private final TokenRevocationService revocations = mock(TokenRevocationService.class);
+    private final CustomUserDetailService customUserDetailService = mock(CustomUserDetailService.class);
+    private final Claims claims = Jwts.claims().subject(EMAIL).id("jti").issuedAt(new Date())
+            .expiration(new Date(System.currentTimeMillis() + 3_600_000)).build();
+
+    TokenIntrospectionServiceImplTests() {
+        when(jwtUtils.parseClaims("token")).thenReturn(claims);
+        when(jwtUtils.toPrincipal(claims)).thenReturn(new UserPrincipal(1L, EMAIL, EnumSet.of(User.Role.ADMIN), true));
+        when(userDetailsCache.getReactive(EMAIL)).thenReturn(Mono.empty());
+        when(revocations.isRevokedReactive(any(), any(), anyLong())).thenReturn(Mono.just(false));
+    }
+
+    @Test
+    void aDeletedUsersTokenIsInactiveAndNotCached() {
+        when(customUserDetailService.loadPrincipal(EMAIL)).thenThrow(new UsernameNotFoundException("gone"));
+
+        IntrospectionDTO result = service(false).introspect("token").block();
+
+        assertThat(result).isSameAs(IntrospectionDTO.INACTIVE);
+        assertThat(tokenPrincipalCache.get("token")).isNull();
+    }
+
+    @Test
+    void aCacheMissLoadsTheCurrentRolesRatherThanTrustingTheClaims() {
+        when(customUserDetailService.loadPrincipal(EMAIL))
+                .thenReturn(new UserPrincipal(1L, EMAIL, EnumSet.of(User.Role.USER), true));
+
+        IntrospectionDTO result = service(false).introspect("token").block();
+
+        assertThat(result.getRoles()).containsExactly(User.Role.USER);
+        verify(jwtUtils, never()).toPrincipal(any());
+    }
+
+    @Test
+    void statelessModeTrustsTheClaimsWithoutALookup() {
+        IntrospectionDTO result = service(true).introspect("token").block();
+
+        assertThat(result.getRoles()).containsExactly(User.Role.ADMIN);
+        verifyNoInteractions(customUserDetailService);
+    }
+
+    private TokenIntrospectionServiceImpl service(boolean statelessPrincipal) {
+        return new TokenIntrospectionServiceImpl(jwtUtils, tokenPrincipalCache, userDetailsCache, revocations,
+                customUserDetailService, statelessPrincipal, new SimpleMeterRegistry());
+    }
+}
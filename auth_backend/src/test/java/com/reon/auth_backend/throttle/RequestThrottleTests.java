@@ -0,0 +1,105 @@
+package com.reon.auth_backend.throttle;
+
+import com.reon.auth_backend.exceptions.TooManyRequestsException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RequestThrottleTests {
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("throttle.login.email", "3/1m")
+            .withProperty("throttle.login.ip", "5/1m")
+            .withProperty("throttle.login.global", "1000/1s");
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("127.0.0.1", port);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void localBucketsRejectWithoutRedisWhenItIsDown() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+        RequestThrottle throttle = new RequestThrottle(redisTemplate, environment, true, 1000, 20);
+
+        for (int i = 0; i < 3; i++) {
+            throttle.check(RequestThrottle.Action.LOGIN, "user@auth.test", "10.0.0.1");
+        }
+        throttle.flush();
+        assertThatThrownBy(() -> throttle.check(RequestThrottle.Action.LOGIN, "USER@auth.test", "10.0.0.2"))
+                .isInstanceOf(TooManyRequestsException.class);
+        // Another email from the same address is still allowed
+        throttle.check(RequestThrottle.Action.LOGIN, "other@auth.test", "10.0.0.1");
+    }
+
+    @Test
+    void admittedRequestsOnlyReachRedisInBatches() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        RequestThrottle throttle = new RequestThrottle(redisTemplate, environment, true, 1000, 20);
+
+        throttle.check(RequestThrottle.Action.LOGIN, "user@auth.test", "10.0.0.1");
+        throttle.check(RequestThrottle.Action.LOGIN, "other@auth.test", "10.0.0.1");
+        verifyNoInteractions(redisTemplate);
+
+        throttle.flush();
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void nodesShareTheirCountsThroughRedis() {
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        RequestThrottle first = new RequestThrottle(redisTemplate, environment, true, 1000, 20);
+        RequestThrottle second = new RequestThrottle(redisTemplate, environment, true, 1000, 20);
+
+        // Each node stays under the per-ip limit of 5 on its own
+        for (int i = 0; i < 3; i++) {
+            first.check(RequestThrottle.Action.LOGIN, "first-" + i + "@auth.test", "10.0.0.9");
+            second.check(RequestThrottle.Action.LOGIN, "second-" + i + "@auth.test", "10.0.0.9");
+        }
+        first.flush();
+        second.flush();
+
+        // The second sync took the shared count to 6
+        assertThatThrownBy(() -> second.check(RequestThrottle.Action.LOGIN, "second-9@auth.test", "10.0.0.9"))
+                .isInstanceOf(TooManyRequestsException.class)
+                .hasMessageContaining(":ip:");
+        // The first node learns it on its next sync
+        first.check(RequestThrottle.Action.LOGIN, "first-9@auth.test", "10.0.0.9");
+        first.flush();
+        assertThatThrownBy(() -> first.check(RequestThrottle.Action.LOGIN, "first-10@auth.test", "10.0.0.9"))
+                .isInstanceOf(TooManyRequestsException.class);
+        // Other addresses are unaffected
+        first.check(RequestThrottle.Action.LOGIN, "first-10@auth.test", "10.0.0.10");
+    }
+}